@@ -0,0 +1,244 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.testing.Test;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Lowers the number of test forks to what the machine, or the container the build runs in, can sustain.
+ * <p>
+ * The fork count configured on the task is capped by the cgroup CPU quota, and by how many test JVMs with the task's
+ * maximum heap size, plus some off-heap overhead, fit in the cgroup memory limit next to the Gradle daemon. It is never
+ * raised, so a fork count set by the build is only ever lowered to fit the limits.
+ * <p>
+ * The limits are read from the cgroup this process belongs to according to {@code /proc/self/cgroup}, or from the root
+ * of the cgroup mount when that cgroup's directory isn't visible, as in a container without a cgroup namespace, whose
+ * own cgroup is mounted at the root. Limits set only on an ancestor of that cgroup are not considered.
+ * <p>
+ * Runs right before the tests, so that it sees the maximum heap size however the build configured it.
+ */
+class AdaptiveTestForks implements Action<Task> {
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+    private static final Path PROC_SELF_CGROUP = Paths.get("/proc/self/cgroup");
+    private static final long DEFAULT_TEST_HEAP = 512L * 1024 * 1024;
+    private static final long FORK_OVERHEAD = 256L * 1024 * 1024;
+
+    /**
+     * cgroup v1 reports "no limit" as a very large number rather than as "max".
+     */
+    private static final long UNLIMITED_MEMORY = 1L << 60;
+
+    @Override
+    public void execute(Task task) {
+        Test test = (Test) task;
+        int configured = test.getMaxParallelForks();
+        long heap = testHeap(test.getMaxHeapSize());
+        List<String> cgroups = readLines(PROC_SELF_CGROUP);
+        OptionalDouble cpuLimit = cpuLimit(CGROUP_ROOT, cgroups);
+        OptionalLong memoryLimit = memoryLimit(CGROUP_ROOT, cgroups);
+
+        int forks = maxParallelForks(configured, cpuLimit, memoryLimit, Runtime.getRuntime().maxMemory(), heap);
+        task.getLogger().info("Running tests in {} fork(s) of {} MB heap ({} configured, cgroup CPU limit {}, cgroup memory limit {})",
+                forks, heap / (1024 * 1024), configured,
+                cpuLimit.isPresent() ? cpuLimit.getAsDouble() : "none",
+                memoryLimit.isPresent() ? memoryLimit.getAsLong() / (1024 * 1024) + " MB" : "none");
+        test.setMaxParallelForks(forks);
+    }
+
+    /**
+     * @param configured The fork count configured on the task, which is never exceeded.
+     * @param reserved   Memory within the limit that is taken by something other than test forks, like the Gradle daemon.
+     * @param heap       The maximum heap size of each test fork.
+     */
+    static int maxParallelForks(int configured, OptionalDouble cpuLimit, OptionalLong memoryLimit,
+                                long reserved, long heap) {
+        int forks = configured;
+        if (cpuLimit.isPresent()) {
+            forks = Math.min(forks, (int) Math.floor(cpuLimit.getAsDouble()));
+        }
+        if (memoryLimit.isPresent()) {
+            forks = (int) Math.min(forks, (memoryLimit.getAsLong() - reserved) / (heap + FORK_OVERHEAD));
+        }
+        return Math.max(1, forks);
+    }
+
+    /**
+     * @param cgroups The lines of {@code /proc/self/cgroup}.
+     * @return The number of CPUs the cgroup is allowed to use, from cgroup v2's {@code cpu.max}, or cgroup v1's CFS quota
+     * and period, or empty when the cgroup's CPU usage is not limited.
+     */
+    static OptionalDouble cpuLimit(Path cgroupRoot, List<String> cgroups) {
+        String cpuMax = readCgroupFile(cgroupRoot, cgroups, null, "cpu.max");
+        if (cpuMax != null) {
+            String[] quotaAndPeriod = cpuMax.split("\\s+");
+            if (quotaAndPeriod.length == 2 && !"max".equals(quotaAndPeriod[0])) {
+                return ratio(quotaAndPeriod[0], quotaAndPeriod[1]);
+            }
+            return OptionalDouble.empty();
+        }
+
+        String quota = readCgroupFile(cgroupRoot, cgroups, "cpu", "cpu.cfs_quota_us");
+        String period = readCgroupFile(cgroupRoot, cgroups, "cpu", "cpu.cfs_period_us");
+        if (quota != null && period != null && !quota.startsWith("-")) {
+            return ratio(quota, period);
+        }
+        return OptionalDouble.empty();
+    }
+
+    /**
+     * @param cgroups The lines of {@code /proc/self/cgroup}.
+     * @return The memory limit of the cgroup in bytes, from cgroup v2's {@code memory.max}, or cgroup v1's
+     * {@code memory.limit_in_bytes}, or empty when the cgroup's memory usage is not limited.
+     */
+    static OptionalLong memoryLimit(Path cgroupRoot, List<String> cgroups) {
+        String limit = readCgroupFile(cgroupRoot, cgroups, null, "memory.max");
+        if (limit == null) {
+            limit = readCgroupFile(cgroupRoot, cgroups, "memory", "memory.limit_in_bytes");
+        }
+        if (limit == null || "max".equals(limit)) {
+            return OptionalLong.empty();
+        }
+        try {
+            long bytes = Long.parseLong(limit);
+            return bytes >= UNLIMITED_MEMORY ? OptionalLong.empty() : OptionalLong.of(bytes);
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * @param heapSize The maximum heap size configured on the test task, if any.
+     * @return The size in bytes, or 512m when it isn't set or can't be parsed.
+     */
+    static long testHeap(@Nullable String heapSize) {
+        if (heapSize == null) {
+            return DEFAULT_TEST_HEAP;
+        }
+        try {
+            long bytes = parseMemorySize(heapSize);
+            return bytes > 0 ? bytes : DEFAULT_TEST_HEAP;
+        } catch (NumberFormatException e) {
+            return DEFAULT_TEST_HEAP;
+        }
+    }
+
+    /**
+     * @param size A JVM memory size, like "512m", "2g" or "1048576".
+     * @return The size in bytes.
+     * @throws NumberFormatException If the size isn't a number with an optional unit.
+     */
+    static long parseMemorySize(String size) {
+        String normalized = size.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            throw new NumberFormatException("Empty memory size");
+        }
+        long multiplier = 1;
+        switch (normalized.charAt(normalized.length() - 1)) {
+            case 'k':
+                multiplier = 1024L;
+                break;
+            case 'm':
+                multiplier = 1024L * 1024;
+                break;
+            case 'g':
+                multiplier = 1024L * 1024 * 1024;
+                break;
+            case 't':
+                multiplier = 1024L * 1024 * 1024 * 1024;
+                break;
+            default:
+                return Long.parseLong(normalized);
+        }
+        return Long.parseLong(normalized.substring(0, normalized.length() - 1)) * multiplier;
+    }
+
+    /**
+     * @param controller The cgroup v1 controller whose hierarchy to read from, or null for the cgroup v2 hierarchy.
+     * @return The trimmed contents of the file in the cgroup this process belongs to, or else at the root of the
+     * hierarchy's mount, or null when neither exists.
+     */
+    private static @Nullable String readCgroupFile(Path cgroupRoot, List<String> cgroups, @Nullable String controller,
+                                                   String file) {
+        Path mount = controller == null ? cgroupRoot : cgroupRoot.resolve(controller);
+        String cgroup = cgroupPath(cgroups, controller);
+        if (cgroup != null) {
+            String contents = read(mount.resolve(cgroup).resolve(file));
+            if (contents != null) {
+                return contents;
+            }
+        }
+        return read(mount.resolve(file));
+    }
+
+    /**
+     * @param cgroups    The lines of {@code /proc/self/cgroup}, each "hierarchy-ID:controller-list:cgroup-path".
+     * @param controller The cgroup v1 controller, or null for the cgroup v2 hierarchy, whose ID is 0 and has no controllers.
+     * @return The path of this process's cgroup relative to the hierarchy's root, or null if it isn't listed.
+     */
+    private static @Nullable String cgroupPath(List<String> cgroups, @Nullable String controller) {
+        for (String line : cgroups) {
+            String[] fields = line.split(":", 3);
+            if (fields.length != 3) {
+                continue;
+            }
+            boolean matches = controller == null ?
+                    "0".equals(fields[0]) && fields[1].isEmpty() :
+                    Arrays.asList(fields[1].split(",")).contains(controller);
+            if (matches) {
+                String path = fields[2].startsWith("/") ? fields[2].substring(1) : fields[2];
+                // Paths outside the cgroup namespace, like "/../..", can't be resolved within the mount
+                return path.contains("..") ? null : path;
+            }
+        }
+        return null;
+    }
+
+    private static OptionalDouble ratio(String quota, String period) {
+        try {
+            double periodValue = Double.parseDouble(period);
+            return periodValue > 0 ? OptionalDouble.of(Double.parseDouble(quota) / periodValue) : OptionalDouble.empty();
+        } catch (NumberFormatException e) {
+            return OptionalDouble.empty();
+        }
+    }
+
+    private static List<String> readLines(Path file) {
+        try {
+            return Files.isRegularFile(file) ? Files.readAllLines(file) : emptyList();
+        } catch (IOException e) {
+            return emptyList();
+        }
+    }
+
+    private static @Nullable String read(Path file) {
+        try {
+            return Files.isRegularFile(file) ? Files.readString(file).trim() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * The constant pool of a class file, keeping the tag of every entry but the contents of only its UTF-8 and class
+ * entries, which is all that is needed to tell the names of the classes a class file refers to.
+ */
+final class ConstantPool {
+    static final int CONSTANT_UTF8 = 1;
+    static final int CONSTANT_CLASS = 7;
+    static final int CONSTANT_DYNAMIC = 17;
+    static final int CONSTANT_MODULE = 19;
+    static final int CONSTANT_PACKAGE = 20;
+
+    private final int[] tags;
+    private final @Nullable String[] utf8;
+    private final int[] classNameIndex;
+
+    private ConstantPool(int[] tags, @Nullable String[] utf8, int[] classNameIndex) {
+        this.tags = tags;
+        this.utf8 = utf8;
+        this.classNameIndex = classNameIndex;
+    }
+
+    /**
+     * Read the constant pool of a class file, leaving the stream positioned at the access flags that follow it.
+     */
+    static ConstantPool read(DataInputStream in) throws IOException {
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        int constantPoolCount = in.readUnsignedShort();
+        int[] tags = new int[constantPoolCount];
+        String[] utf8 = new String[constantPoolCount];
+        int[] classNameIndex = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    utf8[i] = in.readUTF();
+                    break;
+                case CONSTANT_CLASS:
+                    classNameIndex[i] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case CONSTANT_DYNAMIC:
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    i++; // Takes up two constant pool entries
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return new ConstantPool(tags, utf8, classNameIndex);
+    }
+
+    int size() {
+        return tags.length;
+    }
+
+    int tag(int index) {
+        return tags[index];
+    }
+
+    /**
+     * @return The internal name of the class a class entry refers to, e.g. {@code java/lang/String}.
+     */
+    String className(int index) {
+        String name = tags[index] == CONSTANT_CLASS ? utf8[classNameIndex[index]] : null;
+        if (name == null) {
+            throw new IllegalArgumentException("Constant pool entry " + index + " is not a class");
+        }
+        return name;
+    }
+}
@@ -19,24 +19,89 @@ import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.plugins.latest.LatestLexicographicStrategy;
 import org.apache.ivy.plugins.version.*;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
 import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.plugins.JavaPluginExtension;
-import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.*;
+import org.gradle.work.ChangeType;
 import org.gradle.work.DisableCachingByDefault;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
 
 @DisableCachingByDefault(because = "Resolves and downloads recipe dependencies from remote repositories")
-public class RecipeDependenciesDownloadTask extends DefaultTask {
+public abstract class RecipeDependenciesDownloadTask extends DefaultTask {
 
     private static final ChainVersionMatcher versionMatcher = new ChainVersionMatcher();
+    private static final String PARSER_CLASSPATH_PATH = "META-INF/rewrite/classpath";
+
+    /**
+     * The name of the source set to download dependencies for.
+     * <p>
+     * Defaults to "main".
+     */
+    @Input
+    public abstract Property<String> getSourceSetName();
+
+    /**
+     * The resources directory under which the jars are written to {@code META-INF/rewrite/classpath}.
+     * <p>
+     * Defaults to "src/main/resources". Must be one of the resources directories of the configured source set.
+     */
+    @Internal
+    public abstract DirectoryProperty getTargetDir();
+
+    /**
+     * The classpath of recipe dependencies to download.
+     * <p>
+     * When the classpath changes (dependencies added/removed, versions changed,
+     * or resolved artifacts modified), the task will be re-executed, handling
+     * only the jars that were added, changed or removed.
+     */
+    @Classpath
+    @Incremental
+    public abstract ConfigurableFileCollection getRecipeDependenciesClasspath();
+
+    @OutputDirectory
+    public Provider<Directory> getParserClasspathDir() {
+        return getTargetDir().dir(PARSER_CLASSPATH_PATH);
+    }
+
+    /**
+     * Whether to hard-link jars out of the Gradle cache instead of copying them, so that a large parser
+     * classpath takes no additional disk space. Falls back to copying when the file system doesn't support
+     * hard links, or the Gradle cache is on a different volume.
+     * <p>
+     * Hard-linked jars share their contents with the Gradle cache, so they must never be modified in place.
+     * Defaults to false.
+     */
+    @Input
+    public abstract Property<Boolean> getHardLink();
+
+    public RecipeDependenciesDownloadTask() {
+        getSourceSetName().convention("main");
+        getTargetDir().convention(
+                getProject().getLayout().getProjectDirectory().dir("src/main/resources")
+        );
+        getHardLink().convention(false);
+    }
 
     @Override
     public String getDescription() {
@@ -58,34 +123,123 @@ public class RecipeDependenciesDownloadTask extends DefaultTask {
     }
 
     @TaskAction
-    void download() throws IOException {
+    void download(InputChanges inputChanges) throws IOException {
+        File parserClasspath = new File(findMatchingDir(), PARSER_CLASSPATH_PATH);
+        if (!parserClasspath.exists() && !parserClasspath.mkdirs()) {
+            throw new IllegalStateException("Unable to create directory " + parserClasspath);
+        }
+
+        Set<File> changed = new HashSet<>();
+        if (inputChanges.isIncremental()) {
+            for (FileChange change : inputChanges.getFileChanges(getRecipeDependenciesClasspath())) {
+                if (change.getChangeType() == ChangeType.REMOVED) {
+                    Files.deleteIfExists(parserClasspath.toPath().resolve(change.getFile().getName()));
+                } else {
+                    changed.add(change.getFile());
+                }
+            }
+        }
+
+        RecipeDependenciesExtension extension = getProject().getExtensions().getByType(RecipeDependenciesExtension.class);
+
+        // Scan the directory once, rather than once per dependency
+        Map<String, Path> existing = new HashMap<>();
+        try (Stream<Path> files = Files.list(parserClasspath.toPath())) {
+            files.filter(Files::isRegularFile)
+                    .forEach(file -> existing.put(file.getFileName().toString(), file));
+        }
+
+        List<Path[]> copies = new ArrayList<>();
+        for (RecipeDependenciesExtension.ResolvedRecipeDependency dependency : extension.getResolvedArtifactsForSourceSet(getSourceSetName().get())) {
+            Path dependencyFile = dependency.file().toPath();
+            String fileName = dependencyFile.getFileName().toString();
+            Path destination = parserClasspath.toPath().resolve(fileName);
+
+            if (existing.containsKey(fileName) &&
+                (inputChanges.isIncremental() ? !changed.contains(dependency.file()) : sameContents(dependencyFile, destination))) {
+                continue;
+            }
+
+            for (Iterator<Map.Entry<String, Path>> others = existing.entrySet().iterator(); others.hasNext(); ) {
+                Map.Entry<String, Path> otherDependency = others.next();
+                if (!otherDependency.getKey().equals(fileName) && shouldReplace(dependency.dependency(), otherDependency.getKey())) {
+                    Files.delete(otherDependency.getValue());
+                    others.remove();
+                }
+            }
+
+            copies.add(new Path[]{dependencyFile, destination});
+        }
+
+        boolean hardLink = getHardLink().get();
+        try {
+            copies.parallelStream().forEach(copy -> copyAtomically(copy[0], copy[1], hardLink));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Finds the resources directory of the configured source set that matches the target directory.
+     *
+     * @throws GradleException if the target directory is not found in the source set resources directories.
+     */
+    private File findMatchingDir() {
+        File targetDirFile = getTargetDir().get().getAsFile();
+        String sourceSetName = getSourceSetName().get();
+
         SourceDirectorySet resources = getProject().getExtensions().getByType(JavaPluginExtension.class)
                 .getSourceSets()
-                .getByName("main")
+                .getByName(sourceSetName)
                 .getResources();
 
-        for (File sourceDirectory : resources.getSourceDirectories()) {
-            File parserClasspath = new File(sourceDirectory, "META-INF/rewrite/classpath");
-            if (!parserClasspath.exists() && !parserClasspath.mkdirs()) {
-                throw new IllegalStateException("Unable to create directory " + parserClasspath);
-            }
+        Set<File> resourcesDirs = resources.getSourceDirectories().getFiles();
 
-            RecipeDependenciesExtension extension = getProject().getExtensions().getByType(RecipeDependenciesExtension.class);
-            for (Map.Entry<Dependency, File> dependency : extension.getResolved().entrySet()) {
-                Path dependencyFile = dependency.getValue().toPath();
-                Path destination = parserClasspath.toPath().resolve(dependencyFile.getFileName());
+        return resourcesDirs.stream()
+                .filter(dir -> dir.getAbsolutePath().equals(targetDirFile.getAbsolutePath()))
+                .findFirst()
+                .orElseThrow(() -> new GradleException("Provided target directory '" + targetDirFile.getAbsolutePath() +
+                        "' is not found in " + sourceSetName + " source set resources directories. " +
+                        "Available directories: " + resourcesDirs));
+    }
 
-                if (Files.exists(destination)) {
-                    continue;
-                }
+    /**
+     * Compare file contents rather than trusting the file name, as a changing or snapshot version
+     * resolves to a jar of the same name but different contents.
+     */
+    private static boolean sameContents(Path source, Path destination) throws IOException {
+        return Files.isSameFile(source, destination) ||
+               Files.size(source) == Files.size(destination) && Files.mismatch(source, destination) == -1;
+    }
 
-                for (File otherDependency : requireNonNull(parserClasspath.listFiles())) {
-                    if (shouldReplace(dependency.getKey(), otherDependency.getName())) {
-                        Files.delete(otherDependency.toPath());
-                    }
+    /**
+     * Link or copy through a temporary file in the destination directory, so that a partially written jar
+     * is never observed under its final name.
+     */
+    private static void copyAtomically(Path source, Path destination, boolean hardLink) {
+        Path temp = destination.resolveSibling("." + destination.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try {
+                if (hardLink) {
+                    Files.createLink(temp, source);
+                } else {
+                    Files.copy(source, temp);
                 }
-
-                Files.copy(dependencyFile, destination);
+            } catch (IOException | UnsupportedOperationException e) {
+                if (!hardLink) {
+                    throw e;
+                }
+                Files.deleteIfExists(temp);
+                Files.copy(source, temp);
+            }
+            Files.move(temp, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort cleanup of a link or copy that never made it to its destination
             }
         }
     }
@@ -18,20 +18,22 @@ package org.openrewrite.gradle;
 import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.jspecify.annotations.Nullable;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RecipeDependenciesExtension {
     private final ConfigurationContainer configurationContainer;
     private final DependencyHandler dependencyHandler;
 
     private final Map<String, Set<String>> dependenciesBySourceSet = new HashMap<>();
+    private final Map<String, List<ResolvedRecipeDependency>> resolvedBySourceSet = new ConcurrentHashMap<>();
 
     @Inject
     public RecipeDependenciesExtension(ConfigurationContainer configurationContainer,
@@ -64,31 +66,81 @@ public class RecipeDependenciesExtension {
 
     void addDependencyForSourceSet(String sourceSetName, String dependencyNotation) {
         dependenciesBySourceSet.computeIfAbsent(sourceSetName, k -> new HashSet<>()).add(dependencyNotation);
-    }
-
-    Map<Dependency, File> getResolved() {
-        return getResolvedForSourceSet("main");
+        resolvedBySourceSet.remove(sourceSetName);
     }
 
     Map<Dependency, File> getResolvedForSourceSet(String sourceSetName) {
         Map<Dependency, File> resolved = new HashMap<>();
+        for (ResolvedRecipeDependency dependency : getResolvedArtifactsForSourceSet(sourceSetName)) {
+            resolved.put(dependency.dependency(), dependency.file());
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolve the parser classpath of a source set, once, keeping the version Gradle selected for
+     * each dependency; e.g. 5.+ might resolve to 5.3.39.
+     */
+    List<ResolvedRecipeDependency> getResolvedArtifactsForSourceSet(String sourceSetName) {
+        return resolvedBySourceSet.computeIfAbsent(sourceSetName, this::resolve);
+    }
+
+    /**
+     * Resolve all of a source set's dependencies in one detached configuration. The parser classpath
+     * may deliberately hold several versions of the same module, which conflict resolution would merge
+     * into one, so each further version of a module is resolved in a configuration of its own.
+     */
+    private List<ResolvedRecipeDependency> resolve(String sourceSetName) {
+        List<ResolvedRecipeDependency> resolved = new ArrayList<>();
         Set<String> dependencies = dependenciesBySourceSet.get(sourceSetName);
 
         if (dependencies == null) {
             return resolved;
         }
 
+        List<Map<String, Dependency>> configurations = new ArrayList<>();
         for (String dependencyNotation : dependencies) {
             Dependency dependency = dependencyHandler.create(dependencyNotation);
             if (!(dependency instanceof ExternalModuleDependency)) {
                 throw new IllegalArgumentException("Only external module dependencies are supported as recipe dependencies.");
             }
             ((ExternalModuleDependency) dependency).setTransitive(false);
-            for (File file : configurationContainer.detachedConfiguration(dependency).resolve()) {
-                resolved.put(dependency, file);
+            String module = dependency.getGroup() + ":" + dependency.getName();
+            @Nullable Map<String, Dependency> configuration = null;
+            for (Map<String, Dependency> byModule : configurations) {
+                if (!byModule.containsKey(module)) {
+                    configuration = byModule;
+                    break;
+                }
+            }
+            if (configuration == null) {
+                configuration = new HashMap<>();
+                configurations.add(configuration);
+            }
+            configuration.put(module, dependency);
+        }
+
+        for (Map<String, Dependency> byModule : configurations) {
+            for (ResolvedArtifactResult artifact : configurationContainer.detachedConfiguration(byModule.values().toArray(new Dependency[0]))
+                    .getIncoming().getArtifacts().getArtifacts()) {
+                if (artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier id) {
+                    @Nullable Dependency dependency = byModule.get(id.getGroup() + ":" + id.getModule());
+                    if (dependency != null) {
+                        resolved.add(new ResolvedRecipeDependency(dependency, id.getGroup(), id.getModule(), id.getVersion(), artifact.getFile()));
+                    }
+                }
             }
         }
 
         return resolved;
     }
+
+    /**
+     * A recipe dependency, resolved to the artifact and version Gradle selected for it.
+     */
+    record ResolvedRecipeDependency(Dependency dependency, String group, String artifact, String version, File file) {
+        String gav() {
+            return group + ":" + artifact + ":" + version;
+        }
+    }
 }
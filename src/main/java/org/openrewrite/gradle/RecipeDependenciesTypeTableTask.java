@@ -17,26 +17,43 @@ package org.openrewrite.gradle;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
-import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.file.SourceDirectorySet;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
-import org.gradle.api.tasks.Classpath;
-import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.OutputDirectory;
-import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.*;
+import org.gradle.work.ChangeType;
 import org.gradle.work.DisableCachingByDefault;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+import org.jspecify.annotations.Nullable;
 import org.openrewrite.java.internal.parser.TypeTable;
 
+import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-
-import static java.util.Objects.requireNonNull;
+import java.util.TreeMap;
 
 @DisableCachingByDefault(because = "Resolves and downloads recipe dependencies from remote repositories")
 public abstract class RecipeDependenciesTypeTableTask extends DefaultTask {
@@ -61,16 +78,76 @@ public abstract class RecipeDependenciesTypeTableTask extends DefaultTask {
      * The classpath of recipe dependencies to track for changes.
      * <p>
      * When the classpath changes (dependencies added/removed, versions changed,
-     * or resolved artifacts modified), the task will be re-executed.
+     * or resolved artifacts modified), the task will be re-executed, scanning
+     * only the jars that were added or changed.
      */
     @Classpath
+    @Incremental
     public abstract ConfigurableFileCollection getRecipeDependenciesClasspath();
 
+    /**
+     * The directory holding one type table section per jar, keyed by GAV.
+     * <p>
+     * Sections are kept between runs so that adding or removing a single
+     * dependency only scans that jar; the type table is then reassembled by
+     * concatenating the sections, each of which is its own gzip member.
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getSectionsDir();
+
+    /**
+     * A TSV report with, for each jar, the number of classes it holds, its size, the number of type table
+     * rows written for it, the compressed size of those rows and how long the jar took to scan.
+     * <p>
+     * Jars whose section was reused from an earlier run report the metrics of the run that scanned them.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getMetricsReport();
+
+    /**
+     * Whether to write an index next to the type table, with the byte offsets of the gzip
+     * members that hold the classes of each jar and of each package within it.
+     * <p>
+     * Readers that only need a few jars can then decompress just those members, prefixed by
+     * the header member at offset zero, instead of the whole type table. Defaults to false.
+     */
+    @Input
+    public abstract Property<Boolean> getWriteIndex();
+
+    /**
+     * The maximum heap size of the worker process that writes the type table, e.g. "512m".
+     * <p>
+     * When unset, the type table is written inside the Gradle daemon. When set, it is written
+     * in a forked JVM capped at this heap size, so that type tables for very large classpaths
+     * can be generated in small CI containers without the daemon growing to accommodate them.
+     */
+    @Internal
+    public abstract Property<String> getMaxHeapSize();
+
+    /**
+     * Sections already scanned by this or another type table task in the build.
+     */
+    @Internal
+    public abstract Property<TypeTableSectionStore> getSectionStore();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     public RecipeDependenciesTypeTableTask() {
         getSourceSetName().convention("main");
+        getWriteIndex().convention(false);
         getTargetDir().convention(
                 getProject().getLayout().getProjectDirectory().dir("src/main/resources")
         );
+        getSectionsDir().convention(
+                getProject().getLayout().getBuildDirectory().dir("rewrite/type-tables/" + getName())
+        );
+        getMetricsReport().convention(
+                getProject().getLayout().getBuildDirectory().file("reports/rewrite/type-tables/" + getName() + ".tsv")
+        );
+        Provider<TypeTableSectionStore> sectionStore = TypeTableSectionStore.register(getProject());
+        getSectionStore().convention(sectionStore);
+        usesService(sectionStore);
     }
 
     @Override
@@ -84,22 +161,143 @@ public abstract class RecipeDependenciesTypeTableTask extends DefaultTask {
     }
 
     @TaskAction
-    void download() throws IOException {
+    void download(InputChanges inputChanges) throws IOException {
         File matchedDir = findMatchingDir();
         File tsvFile = createTsvFile(matchedDir);
+        File sectionsDir = getSectionsDir().get().getAsFile();
 
         RecipeDependenciesExtension extension = getProject().getExtensions().getByType(RecipeDependenciesExtension.class);
         String sourceSet = getSourceSetName().get();
-        try (TypeTable.Writer writer = TypeTable.newWriter(Files.newOutputStream(tsvFile.toPath()))) {
-            for (Map.Entry<Dependency, File> dependency : extension.getResolvedForSourceSet(sourceSet).entrySet()) {
-                String group = requireNonNull(dependency.getKey().getGroup(), "group");
-                String artifact = dependency.getKey().getName();
-                // Determine actual version; e.g. 5.+ might resolve to 5.3.39
-                String version = dependency.getValue().getName()
-                        .substring(artifact.length() + 1)
-                        .replaceAll(".jar$", "");
-                writer.jar(group, artifact, version).write(dependency.getValue().toPath());
-                getLogger().info("Wrote %s:%s:%s to %s".formatted(group, artifact, version, tsvFile));
+        Map<String, File> jarsByGav = new TreeMap<>();
+        for (RecipeDependenciesExtension.ResolvedRecipeDependency dependency : extension.getResolvedArtifactsForSourceSet(sourceSet)) {
+            jarsByGav.put(dependency.gav(), dependency.file());
+        }
+
+        Set<File> changed = new HashSet<>();
+        if (inputChanges.isIncremental()) {
+            for (FileChange change : inputChanges.getFileChanges(getRecipeDependenciesClasspath())) {
+                if (change.getChangeType() != ChangeType.REMOVED) {
+                    changed.add(change.getFile());
+                }
+            }
+        }
+
+        Map<String, File> toScan = new TreeMap<>();
+        for (Map.Entry<String, File> jar : jarsByGav.entrySet()) {
+            if (!inputChanges.isIncremental() || changed.contains(jar.getValue()) ||
+                !TypeTableSections.hasSection(sectionsDir, jar.getKey(), getWriteIndex().get())) {
+                toScan.put(jar.getKey(), jar.getValue());
+            }
+        }
+        int removed = TypeTableSections.deleteSectionsExcept(sectionsDir, jarsByGav.keySet());
+        getLogger().info("Scanning {} of {} jars, removed {} stale sections", toScan.size(), jarsByGav.size(), removed);
+
+        WorkQueue queue = getMaxHeapSize().isPresent() ?
+                getWorkerExecutor().processIsolation(spec -> spec.forkOptions(fork ->
+                        fork.setMaxHeapSize(getMaxHeapSize().get()))) :
+                getWorkerExecutor().noIsolation();
+        queue.submit(WriteTypeTable.class, parameters -> {
+            parameters.getTsvFile().set(tsvFile);
+            if (getWriteIndex().get()) {
+                parameters.getIndexFile().set(TypeTableSections.indexFile(tsvFile));
+            }
+            parameters.getSectionsDir().set(sectionsDir);
+            parameters.getMetricsReport().set(getMetricsReport());
+            parameters.getStoreDir().set(getSectionStore().get().getParameters().getStoreDir());
+            parameters.getGavs().set(jarsByGav.keySet());
+            parameters.getJarsToScan().set(toScan);
+            parameters.getMeasurePeakHeap().set(getMaxHeapSize().isPresent());
+        });
+    }
+
+    /**
+     * Writes a type table section for each added or changed jar, one jar at a time, unless the
+     * build's section store already holds one scanned from the same jar contents in the same
+     * layout. Then assembles the type table from all sections and, when running in a forked worker
+     * process of its own, reports the peak heap usage of that process.
+     */
+    public abstract static class WriteTypeTable implements WorkAction<WriteTypeTable.Parameters> {
+        private static final Logger logger = Logging.getLogger(WriteTypeTable.class);
+
+        public interface Parameters extends WorkParameters {
+            RegularFileProperty getTsvFile();
+
+            RegularFileProperty getIndexFile();
+
+            RegularFileProperty getMetricsReport();
+
+            DirectoryProperty getSectionsDir();
+
+            DirectoryProperty getStoreDir();
+
+            /**
+             * The "group:artifact:version" coordinates of every jar, in type table order.
+             */
+            ListProperty<String> getGavs();
+
+            /**
+             * Jars whose section must be (re)written, keyed by their "group:artifact:version" coordinates.
+             */
+            MapProperty<String, File> getJarsToScan();
+
+            /**
+             * Whether the action runs in a worker process of its own, where the heap's peak usage is that of the
+             * type table alone, rather than in the Gradle daemon, whose heap is shared with everything else.
+             */
+            Property<Boolean> getMeasurePeakHeap();
+        }
+
+        @Override
+        public void execute() {
+            boolean measurePeakHeap = getParameters().getMeasurePeakHeap().getOrElse(false);
+            if (measurePeakHeap) {
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (pool.getType() == MemoryType.HEAP) {
+                        pool.resetPeakUsage();
+                    }
+                }
+            }
+
+            File sectionsDir = getParameters().getSectionsDir().get().getAsFile();
+            File storeDir = getParameters().getStoreDir().get().getAsFile();
+            File tsvFile = getParameters().getTsvFile().get().getAsFile();
+            @Nullable Path indexFile = getParameters().getIndexFile().isPresent() ?
+                    getParameters().getIndexFile().get().getAsFile().toPath() : null;
+            Set<String> scanned = new HashSet<>();
+            try {
+                for (Map.Entry<String, File> jar : getParameters().getJarsToScan().get().entrySet()) {
+                    String gav = jar.getKey();
+                    File storedDir = new File(storeDir, TypeTableSections.contentHash(jar.getValue().toPath()) +
+                                                        (indexFile != null ? "-indexed" : ""));
+                    if (TypeTableSections.hasSection(storedDir, gav, indexFile != null)) {
+                        logger.info("Reusing stored type table section for {}", gav);
+                    } else {
+                        long start = System.nanoTime();
+                        TypeTableSections.writeSection(gav, jar.getValue().toPath(),
+                                TypeTableSections.sectionFile(storedDir, gav).toPath(), indexFile != null);
+                        scanned.add(gav);
+                        logger.info("Wrote type table section for {} in {} ms", gav, (System.nanoTime() - start) / 1_000_000);
+                    }
+                    TypeTableSectionStore.markUsed(storedDir);
+                    TypeTableSections.copySection(storedDir, sectionsDir, gav);
+                }
+                TypeTableSections.assemble(tsvFile.toPath(), indexFile, sectionsDir, getParameters().getGavs().get());
+                logger.info("Assembled {} from {} sections", tsvFile, getParameters().getGavs().get().size());
+                TypeTableSections.writeMetricsReport(getParameters().getMetricsReport().get().getAsFile().toPath(),
+                        sectionsDir, getParameters().getGavs().get(), scanned);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            if (measurePeakHeap) {
+                long peakHeap = 0;
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (pool.getType() == MemoryType.HEAP) {
+                        peakHeap += pool.getPeakUsage().getUsed();
+                    }
+                }
+                logger.info("Type table peak heap usage: {} MB (max heap {} MB)",
+                        peakHeap / (1024 * 1024), Runtime.getRuntime().maxMemory() / (1024 * 1024));
             }
         }
     }
@@ -138,6 +336,9 @@ public abstract class RecipeDependenciesTypeTableTask extends DefaultTask {
             throw new IOException("Unable to create " + parentFile);
         }
         Files.deleteIfExists(tsvFile.toPath().resolveSibling(tsvFile.getName().replace(".tsv.gz", ".tsv.zip")));
+        if (!getWriteIndex().get()) {
+            Files.deleteIfExists(TypeTableSections.indexFile(tsvFile).toPath());
+        }
         return tsvFile;
     }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the names of the recipes a recipe jar provides without loading or initializing any of its classes.
+ * <p>
+ * Recipe classes are found by reading just the constant pool and class header of each class file, and following
+ * superclasses, through the classpath if need be, up to {@code org.openrewrite.Recipe}. Declarative recipes are
+ * found in the YAML files under {@code META-INF/rewrite}. A recipe class that overrides {@code getName()} is
+ * reported under its class name, so this is only an approximation of the recipes an Environment would load.
+ */
+final class RecipeDescriptors {
+    private static final Set<String> RECIPE_BASE_CLASSES = Set.of("org/openrewrite/Recipe", "org/openrewrite/ScanningRecipe");
+    private static final String DECLARATIVE_RECIPE_TYPE = "specs.openrewrite.org/v1beta/recipe";
+    private static final Pattern ANONYMOUS_CLASS = Pattern.compile(".*\\$\\d+$");
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private RecipeDescriptors() {
+    }
+
+    /**
+     * @return The names of the recipes provided by the recipe jar, not by its dependencies.
+     */
+    static Set<String> recipeNames(Path recipeJar, List<Path> classpath) throws IOException {
+        Set<String> names = new TreeSet<>();
+        Map<String, ClassHeader> headers = new HashMap<>();
+        YAMLMapper yaml = new YAMLMapper();
+        try (JarFile jar = new JarFile(recipeJar.toFile())) {
+            for (JarEntry entry : Collections.list(jar.entries())) {
+                String entryName = entry.getName();
+                if (entryName.endsWith(".class") && !entryName.endsWith("module-info.class") &&
+                    !entryName.startsWith("META-INF/versions/")) {
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        ClassHeader header = ClassHeader.read(in);
+                        headers.put(header.name, header);
+                    }
+                } else if (entryName.startsWith("META-INF/rewrite/") &&
+                           (entryName.endsWith(".yml") || entryName.endsWith(".yaml"))) {
+                    try (InputStream in = jar.getInputStream(entry);
+                         MappingIterator<Map<String, Object>> documents = yaml.readerForMapOf(Object.class).readValues(in)) {
+                        while (documents.hasNext()) {
+                            Map<String, Object> document = documents.next();
+                            if (document != null && DECLARATIVE_RECIPE_TYPE.equals(document.get("type")) &&
+                                document.get("name") instanceof String) {
+                                names.add((String) document.get("name"));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        try (Superclasses superclasses = new Superclasses(headers, classpath)) {
+            for (ClassHeader header : headers.values()) {
+                if ((header.access & ACC_PUBLIC) != 0 && (header.access & (ACC_INTERFACE | ACC_ABSTRACT)) == 0 &&
+                    !ANONYMOUS_CLASS.matcher(header.name).matches() && superclasses.isRecipe(header.name)) {
+                    names.add(header.name.replace('/', '.'));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Resolves superclasses from the recipe jar's class headers, and failing that from the classpath,
+     * opening each classpath jar at most once.
+     */
+    private static class Superclasses implements AutoCloseable {
+        private final Map<String, ClassHeader> headers;
+        private final List<Path> classpath;
+        private final List<JarFile> openJars = new ArrayList<>();
+        private final Map<String, Boolean> isRecipe = new HashMap<>();
+
+        Superclasses(Map<String, ClassHeader> headers, List<Path> classpath) {
+            this.headers = headers;
+            this.classpath = classpath;
+        }
+
+        boolean isRecipe(String className) throws IOException {
+            Boolean known = isRecipe.get(className);
+            if (known != null) {
+                return known;
+            }
+            ClassHeader header = header(className);
+            boolean recipe = header != null && header.superName != null &&
+                             (RECIPE_BASE_CLASSES.contains(header.superName) || isRecipe(header.superName));
+            isRecipe.put(className, recipe);
+            return recipe;
+        }
+
+        private @Nullable ClassHeader header(String className) throws IOException {
+            ClassHeader header = headers.get(className);
+            if (header != null) {
+                return header;
+            }
+            if (openJars.isEmpty()) {
+                for (Path entry : classpath) {
+                    openJars.add(new JarFile(entry.toFile()));
+                }
+            }
+            for (JarFile jar : openJars) {
+                JarEntry entry = jar.getJarEntry(className + ".class");
+                if (entry != null) {
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        header = ClassHeader.read(in);
+                    }
+                    headers.put(className, header);
+                    return header;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (JarFile jar : openJars) {
+                jar.close();
+            }
+        }
+    }
+
+    private static class ClassHeader {
+        private final String name;
+        private final @Nullable String superName;
+        private final int access;
+
+        private ClassHeader(String name, @Nullable String superName, int access) {
+            this.name = name;
+            this.superName = superName;
+            this.access = access;
+        }
+
+        /**
+         * Read the access flags, name and superclass name of a class file.
+         */
+        static ClassHeader read(InputStream classFile) throws IOException {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(classFile));
+            ConstantPool constantPool = ConstantPool.read(in);
+            int access = in.readUnsignedShort();
+            int thisClass = in.readUnsignedShort();
+            int superClass = in.readUnsignedShort();
+            return new ClassHeader(constantPool.className(thisClass),
+                    superClass == 0 ? null : constantPool.className(superClass), access);
+        }
+    }
+}
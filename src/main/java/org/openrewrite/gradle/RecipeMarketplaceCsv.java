@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Splits a recipes.csv into its raw records, without interpreting the fields, so that the rows
+ * can be handed to {@link org.openrewrite.marketplace.RecipeMarketplaceReader} in independent chunks.
+ */
+final class RecipeMarketplaceCsv {
+
+    private RecipeMarketplaceCsv() {
+    }
+
+    /**
+     * Read the records of a CSV file, where a record ends at a line break outside of a quoted field.
+     * Quoted fields may contain commas, line breaks and escaped ({@code ""}) quotes. Each record is
+     * returned without its terminating line break, and blank lines are dropped.
+     *
+     * @return The records of the CSV, the header row first.
+     */
+    static List<String> readRecords(Path csv) throws IOException {
+        List<String> records = new ArrayList<>();
+        StringBuilder record = new StringBuilder();
+        boolean quoted = false;
+        try (BufferedReader in = Files.newBufferedReader(csv, UTF_8)) {
+            for (int c = in.read(); c != -1; c = in.read()) {
+                if (c == '"') {
+                    // An escaped quote inside a quoted field toggles twice, leaving it quoted
+                    quoted = !quoted;
+                } else if ((c == '\n' || c == '\r') && !quoted) {
+                    addRecord(records, record);
+                    continue;
+                }
+                record.append((char) c);
+            }
+        }
+        addRecord(records, record);
+        return records;
+    }
+
+    /**
+     * Split a record into its fields, unquoting quoted fields.
+     */
+    static List<String> fields(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * @return The values of the named column in every row of the CSV, or none when there is no such column.
+     */
+    static List<String> column(List<String> records, String name) {
+        if (records.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int column = fields(records.get(0)).indexOf(name);
+        if (column < 0) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>(records.size() - 1);
+        for (String record : records.subList(1, records.size())) {
+            List<String> fields = fields(record);
+            if (column < fields.size()) {
+                values.add(fields.get(column));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return The hex-encoded SHA-256 hash of a record.
+     */
+    static String hash(String record) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(record.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void addRecord(List<String> records, StringBuilder record) {
+        if (!record.toString().isBlank()) {
+            records.add(record.toString());
+        }
+        record.setLength(0);
+    }
+}
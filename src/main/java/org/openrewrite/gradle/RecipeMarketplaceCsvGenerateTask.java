@@ -16,27 +16,23 @@
 package org.openrewrite.gradle;
 
 import org.gradle.api.DefaultTask;
-import org.gradle.api.GradleException;
-import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.*;
 import org.gradle.work.DisableCachingByDefault;
+import org.jspecify.annotations.Nullable;
 import org.openrewrite.marketplace.RecipeMarketplace;
 import org.openrewrite.marketplace.RecipeMarketplaceReader;
 import org.openrewrite.marketplace.RecipeMarketplaceWriter;
-import org.openrewrite.maven.marketplace.MavenRecipeMarketplaceGenerator;
-import org.openrewrite.maven.tree.GroupArtifact;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
 
-import static java.util.stream.Collectors.toList;
-
-@DisableCachingByDefault(because = "Generates the recipe marketplace CSV from resolved recipe metadata")
+@DisableCachingByDefault(because = "Merges generated recipe metadata into the recipes.csv under source control")
 public abstract class RecipeMarketplaceCsvGenerateTask extends DefaultTask {
 
     @Input
@@ -48,12 +44,12 @@ public abstract class RecipeMarketplaceCsvGenerateTask extends DefaultTask {
     @Input
     public abstract Property<String> getVersion();
 
+    /**
+     * The CSV of recipes found in the recipe JAR, as written by {@code recipeCsvScan}.
+     */
     @InputFile
     @PathSensitive(PathSensitivity.NONE)
-    public abstract RegularFileProperty getRecipeJar();
-
-    @Classpath
-    public abstract ConfigurableFileCollection getRuntimeClasspath();
+    public abstract RegularFileProperty getGeneratedCsv();
 
     /**
      * The output CSV file where the generated marketplace will be written.
@@ -74,57 +70,45 @@ public abstract class RecipeMarketplaceCsvGenerateTask extends DefaultTask {
 
     @TaskAction
     void generate() throws IOException {
-        Path recipeJarPath = getRecipeJar().get().getAsFile().toPath();
-        if (!Files.exists(recipeJarPath)) {
-            throw new GradleException("Recipe JAR does not exist: " + recipeJarPath + ". Make sure the jar task has run.");
-        }
-
-        // Get runtime classpath (dependencies only, excluding the recipe JAR itself)
-        List<Path> classpath = getRuntimeClasspath()
-                .getFiles()
-                .stream()
-                .map(File::toPath)
-                .filter(path -> !path.equals(recipeJarPath)) // Exclude the recipe JAR itself
-                .collect(toList());
-
         String groupId = getGroupId().get();
         String artifactId = getArtifactId().get();
         String version = getVersion().get();
 
-        getLogger().info("Generating recipe marketplace from JAR: {}", recipeJarPath);
         getLogger().info("Using GAV coordinates: {}:{}:{}", groupId, artifactId, version);
 
-        MavenRecipeMarketplaceGenerator generator = new MavenRecipeMarketplaceGenerator(
-                new GroupArtifact(groupId, artifactId),
-                recipeJarPath,
-                classpath
-        );
-        RecipeMarketplace generated = generator.generate();
+        RecipeMarketplaceReader reader = new RecipeMarketplaceReader();
+        Path generatedPath = getGeneratedCsv().get().getAsFile().toPath();
+        @Nullable RecipeMarketplace generated = Files.readString(generatedPath).isBlank() ? null : reader.fromCsv(generatedPath);
 
         // Check if existing CSV exists and merge if present
         Path outputPath = getOutputFile().get().getAsFile().toPath();
-        RecipeMarketplace marketplace = generated;
+        @Nullable RecipeMarketplace marketplace = generated;
 
         if (Files.exists(outputPath)) {
             getLogger().info("Found existing recipes.csv, merging...");
-            RecipeMarketplaceReader reader = new RecipeMarketplaceReader();
             RecipeMarketplace existing = reader.fromCsv(outputPath);
 
             String packageName = groupId + ":" + artifactId;
             existing.uninstall("maven", packageName);
-            existing.merge(generated);
+            if (generated != null) {
+                existing.merge(generated);
+            }
             marketplace = existing;
         } else {
             getLogger().info("No existing recipes.csv found, creating new file");
         }
 
+        if (marketplace == null) {
+            getLogger().lifecycle("No recipes found, skipping recipes.csv generation");
+            return;
+        }
+
         // Write merged marketplace to CSV
         RecipeMarketplaceWriter writer = new RecipeMarketplaceWriter();
         String csv = writer.toCsv(marketplace);
 
         // Check if CSV has actual content (more than just header)
-        long lineCount = csv.lines().count();
-        if (lineCount <= 1) {
+        if (!hasRows(csv)) {
             getLogger().lifecycle("No recipes found, skipping recipes.csv generation");
             return;
         }
@@ -132,8 +116,33 @@ public abstract class RecipeMarketplaceCsvGenerateTask extends DefaultTask {
         // Ensure parent directory exists
         Files.createDirectories(outputPath.getParent());
 
-        // Write to file
-        Files.writeString(outputPath, csv);
+        // Write through a temporary file, so that an interrupted build never leaves a truncated recipes.csv
+        Path temp = outputPath.resolveSibling("." + outputPath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp)) {
+                out.write(csv);
+            }
+            Files.move(temp, outputPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
         getLogger().lifecycle("Generated recipes.csv at: {}", outputPath.toAbsolutePath());
     }
+
+    /**
+     * Whether the CSV has a non-blank line after its header row, found without splitting
+     * a potentially very large CSV into a string per line.
+     */
+    private static boolean hasRows(String csv) {
+        int headerEnd = csv.indexOf('\n');
+        if (headerEnd < 0) {
+            return false;
+        }
+        for (int i = headerEnd + 1; i < csv.length(); i++) {
+            if (!Character.isWhitespace(csv.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+import org.openrewrite.marketplace.RecipeMarketplace;
+import org.openrewrite.marketplace.RecipeMarketplaceWriter;
+import org.openrewrite.maven.marketplace.MavenRecipeMarketplaceGenerator;
+import org.openrewrite.maven.tree.GroupArtifact;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Scans the recipe JAR into a marketplace CSV of just the recipes it provides, in the build directory.
+ * <p>
+ * This is the expensive half of {@code recipeCsvGenerate}, split out so that it depends only on the recipe
+ * JAR and its classpath, and can be served from the build cache when neither has changed.
+ */
+@CacheableTask
+public abstract class RecipeMarketplaceCsvScanTask extends DefaultTask {
+
+    @Input
+    public abstract Property<String> getGroupId();
+
+    @Input
+    public abstract Property<String> getArtifactId();
+
+    /**
+     * The recipe JAR, normalized as a classpath entry so that rebuilding it with new file timestamps
+     * but the same contents does not invalidate the scan.
+     */
+    @Classpath
+    public abstract RegularFileProperty getRecipeJar();
+
+    @Classpath
+    public abstract ConfigurableFileCollection getRuntimeClasspath();
+
+    /**
+     * The CSV of recipes found in the recipe JAR.
+     * Defaults to build/rewrite/recipes.csv
+     */
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    /**
+     * The maximum heap size of the worker process that loads the recipes, e.g. "512m".
+     * <p>
+     * When neither this nor {@link #getJvmArgs()} is set, recipes are loaded inside the Gradle daemon.
+     * When set, they are loaded in a forked worker process, so that recipe classes never occupy the daemon's
+     * heap or metaspace. Gradle reuses idle worker processes with the same options, including across builds
+     * run by the same daemon.
+     */
+    @Internal
+    public abstract Property<String> getMaxHeapSize();
+
+    /**
+     * Additional JVM arguments of the worker process that loads the recipes. Setting any loads recipes in a
+     * forked worker process, as described for {@link #getMaxHeapSize()}.
+     */
+    @Internal
+    public abstract ListProperty<String> getJvmArgs();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @Override
+    public String getDescription() {
+        return "Scans the recipe JAR for the recipes it provides, as input to recipeCsvGenerate.";
+    }
+
+    @Override
+    public String getGroup() {
+        return "OpenRewrite";
+    }
+
+    @TaskAction
+    void scan() {
+        Path recipeJarPath = getRecipeJar().get().getAsFile().toPath();
+        if (!Files.exists(recipeJarPath)) {
+            throw new GradleException("Recipe JAR does not exist: " + recipeJarPath + ". Make sure the jar task has run.");
+        }
+
+        // Get runtime classpath (dependencies only, excluding the recipe JAR itself)
+        List<Path> classpath = getRuntimeClasspath()
+                .getFiles()
+                .stream()
+                .map(File::toPath)
+                .filter(path -> !path.equals(recipeJarPath)) // Exclude the recipe JAR itself
+                .collect(toList());
+
+        getLogger().info("Generating recipe marketplace from JAR: {}", recipeJarPath);
+
+        WorkQueue queue = getMaxHeapSize().isPresent() || !getJvmArgs().get().isEmpty() ?
+                getWorkerExecutor().processIsolation(spec -> spec.forkOptions(fork -> {
+                    if (getMaxHeapSize().isPresent()) {
+                        fork.setMaxHeapSize(getMaxHeapSize().get());
+                    }
+                    fork.jvmArgs(getJvmArgs().get());
+                })) :
+                getWorkerExecutor().noIsolation();
+        queue.submit(GenerateRecipeCsv.class, parameters -> {
+            parameters.getGroupId().set(getGroupId());
+            parameters.getArtifactId().set(getArtifactId());
+            parameters.getRecipeJar().set(getRecipeJar());
+            parameters.getClasspath().set(classpath.stream().map(Path::toFile).collect(toList()));
+            parameters.getOutputFile().set(getOutputFile());
+        });
+    }
+
+    /**
+     * Scans the recipe JAR with {@link MavenRecipeMarketplaceGenerator} and writes the recipes it found.
+     */
+    public abstract static class GenerateRecipeCsv implements WorkAction<GenerateRecipeCsv.Parameters> {
+
+        public interface Parameters extends WorkParameters {
+            Property<String> getGroupId();
+
+            Property<String> getArtifactId();
+
+            RegularFileProperty getRecipeJar();
+
+            ListProperty<File> getClasspath();
+
+            RegularFileProperty getOutputFile();
+        }
+
+        @Override
+        public void execute() {
+            MavenRecipeMarketplaceGenerator generator = new MavenRecipeMarketplaceGenerator(
+                    new GroupArtifact(getParameters().getGroupId().get(), getParameters().getArtifactId().get()),
+                    getParameters().getRecipeJar().get().getAsFile().toPath(),
+                    getParameters().getClasspath().get().stream().map(File::toPath).collect(toList())
+            );
+            RecipeMarketplace generated = generator.generate();
+
+            Path outputPath = getParameters().getOutputFile().get().getAsFile().toPath();
+            try {
+                Files.createDirectories(outputPath.getParent());
+                Files.writeString(outputPath, new RecipeMarketplaceWriter().toCsv(generated));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -19,8 +19,13 @@ import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.*;
-import org.gradle.work.DisableCachingByDefault;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 import org.openrewrite.Validated;
 import org.openrewrite.config.Environment;
 import org.openrewrite.marketplace.RecipeClassLoader;
@@ -28,36 +33,84 @@ import org.openrewrite.marketplace.RecipeMarketplace;
 import org.openrewrite.marketplace.RecipeMarketplaceCompletenessValidator;
 import org.openrewrite.marketplace.RecipeMarketplaceReader;
 
+import javax.inject.Inject;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 
-@DisableCachingByDefault(because = "Validation task that loads recipes to verify marketplace CSV completeness")
+@CacheableTask
 public abstract class RecipeMarketplaceCsvValidateCompletenessTask extends DefaultTask {
 
     /**
      * The recipes.csv file to validate.
      * Defaults to src/main/resources/META-INF/rewrite/recipes.csv
      * <br/>
-     * Note: Not marked as @InputFile because we want to allow the file to not exist
+     * Note: Marked as @InputFiles rather than @InputFile because we want to allow the file to not exist
      * and gracefully skip validation in that case.
      */
-    @Internal
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
     public abstract RegularFileProperty getCsvFile();
 
-    @InputFile
-    @PathSensitive(PathSensitivity.NONE)
+    /**
+     * The recipe JAR, normalized as a classpath entry so that rebuilding it with new file timestamps
+     * but the same contents does not re-run validation.
+     */
+    @Classpath
     public abstract RegularFileProperty getRecipeJar();
 
     @Classpath
     public abstract ConfigurableFileCollection getRuntimeClasspath();
 
+    /**
+     * Written when validation passes, so that the task is up to date until recipes.csv or the recipe JAR changes.
+     * Defaults to build/rewrite/validation/recipeCsvValidateCompleteness
+     */
+    @OutputFile
+    public abstract RegularFileProperty getMarkerFile();
+
+    /**
+     * When true, compare the recipe names listed in recipes.csv against recipe names read from the recipe JAR's
+     * class file headers and declarative recipe YAML, without loading any recipe classes. Recipe classes that
+     * override {@code getName()} are expected under their class name, so this is off by default.
+     */
+    @Input
+    public abstract Property<Boolean> getDescriptorsOnly();
+
+    /**
+     * The maximum heap size of the worker process that loads the recipes, e.g. "512m".
+     * <p>
+     * When neither this nor {@link #getJvmArgs()} is set, recipes are loaded inside the Gradle daemon.
+     * When set, they are loaded in a forked worker process, so that recipe classes never occupy the daemon's
+     * heap or metaspace. Gradle reuses idle worker processes with the same options, including across builds
+     * run by the same daemon.
+     */
+    @Internal
+    public abstract Property<String> getMaxHeapSize();
+
+    /**
+     * Additional JVM arguments of the worker process that loads the recipes. Setting any loads recipes in a
+     * forked worker process, as described for {@link #getMaxHeapSize()}.
+     */
+    @Internal
+    public abstract ListProperty<String> getJvmArgs();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    public RecipeMarketplaceCsvValidateCompletenessTask() {
+        getMarkerFile().convention(getProject().getLayout().getBuildDirectory().file("rewrite/validation/" + getName()));
+        getDescriptorsOnly().convention(false);
+    }
+
     @Override
     public String getDescription() {
         return "Validates the completeness of recipes.csv against the recipe JAR (CSV ↔ JAR synchronization)";
@@ -69,11 +122,12 @@ public abstract class RecipeMarketplaceCsvValidateCompletenessTask extends Defau
     }
 
     @TaskAction
-    void validate() {
+    void validate() throws IOException {
         Path csvPath = getCsvFile().get().getAsFile().toPath();
 
         if (!Files.exists(csvPath)) {
             getLogger().lifecycle("No recipes.csv found at {}, skipping validation", csvPath.toAbsolutePath());
+            writeMarker("skipped");
             return;
         }
 
@@ -86,48 +140,125 @@ public abstract class RecipeMarketplaceCsvValidateCompletenessTask extends Defau
         getLogger().info("Validating recipes.csv completeness at: {}", csvPath.toAbsolutePath());
         getLogger().info("Against recipe JAR: {}", recipeJarPath);
 
-        // Validate completeness
-        RecipeMarketplaceCompletenessValidator validator = new RecipeMarketplaceCompletenessValidator();
-        Validated<RecipeMarketplace> validation = validator.validate(
-                new RecipeMarketplaceReader().fromCsv(csvPath),
-                jarScanningEnvironment(recipeJarPath));
+        // Get runtime classpath, as that contains classes needed to load recipes
+        List<Path> classpath = getRuntimeClasspath()
+                .getFiles()
+                .stream()
+                .map(File::toPath)
+                .filter(path -> path.toString().endsWith(".jar")) // Exclude build output directories
+                .collect(toList());
+
+        if (getDescriptorsOnly().get()) {
+            validateDescriptors(csvPath, recipeJarPath, classpath);
+        } else {
+            WorkQueue queue = getMaxHeapSize().isPresent() || !getJvmArgs().get().isEmpty() ?
+                    getWorkerExecutor().processIsolation(spec -> spec.forkOptions(fork -> {
+                        if (getMaxHeapSize().isPresent()) {
+                            fork.setMaxHeapSize(getMaxHeapSize().get());
+                        }
+                        fork.jvmArgs(getJvmArgs().get());
+                    })) :
+                    getWorkerExecutor().noIsolation();
+            queue.submit(ValidateCompleteness.class, parameters -> {
+                parameters.getCsvFile().set(getCsvFile());
+                parameters.getRecipeJar().set(getRecipeJar());
+                parameters.getClasspath().set(classpath.stream().map(Path::toFile).collect(toList()));
+            });
+            queue.await();
+        }
+
+        getLogger().lifecycle("Recipe marketplace CSV completeness validation passed");
+        writeMarker("passed");
+    }
 
+    private void writeMarker(String outcome) throws IOException {
+        Path marker = getMarkerFile().get().getAsFile().toPath();
+        Files.createDirectories(marker.getParent());
+        Files.writeString(marker, outcome);
+    }
+
+    private static void validateDescriptors(Path csvPath, Path recipeJarPath, List<Path> classpath) throws IOException {
+        Set<String> listed = new TreeSet<>(RecipeMarketplaceCsv.column(RecipeMarketplaceCsv.readRecords(csvPath), "name"));
+        Set<String> provided = RecipeDescriptors.recipeNames(recipeJarPath, classpath);
+
+        Map<String, List<String>> byMessage = new LinkedHashMap<>();
+        for (String name : listed) {
+            if (!provided.contains(name)) {
+                byMessage.computeIfAbsent("Recipe listed in CSV must exist in the environment", k -> new ArrayList<>()).add(name);
+            }
+        }
+        for (String name : provided) {
+            if (!listed.contains(name)) {
+                byMessage.computeIfAbsent("Recipe exists in environment but is not listed in CSV", k -> new ArrayList<>()).add(name);
+            }
+        }
+        failOn(byMessage);
+    }
+
+    private static void failOnInvalid(Validated<RecipeMarketplace> validation) {
         if (validation.isInvalid()) {
-            Map<String, List<Validated.Invalid<RecipeMarketplace>>> byMessage = validation.failures().stream()
+            failOn(validation.failures().stream()
                     .sorted(comparing(Validated.Invalid::getProperty))
-                    .collect(groupingBy(Validated.Invalid::getMessage));
+                    .collect(groupingBy(Validated.Invalid::getMessage, mapping(Validated.Invalid::getProperty, toList()))));
+        }
+    }
+
+    private static void failOn(Map<String, List<String>> propertiesByMessage) {
+        if (propertiesByMessage.isEmpty()) {
+            return;
+        }
 
-            StringBuilder errorMessage = new StringBuilder();
-            for (Map.Entry<String, List<Validated.Invalid<RecipeMarketplace>>> entry : byMessage.entrySet()) {
-                String message = entry.getKey();
-                List<Validated.Invalid<RecipeMarketplace>> props = entry.getValue();
+        StringBuilder errorMessage = new StringBuilder();
+        for (Map.Entry<String, List<String>> entry : propertiesByMessage.entrySet()) {
+            String message = entry.getKey();
+            List<String> props = entry.getValue();
 
-                errorMessage.append(message).append(" (").append(props.size()).append("):\n");
-                for (Validated.Invalid<RecipeMarketplace> failure : props) {
-                    errorMessage.append("  - ").append(failure.getProperty()).append("\n");
-                }
+            errorMessage.append(message).append(" (").append(props.size()).append("):\n");
+            for (String property : props) {
+                errorMessage.append("  - ").append(property).append("\n");
             }
-
-            throw new GradleException(errorMessage.toString());
         }
 
-        getLogger().lifecycle("Recipe marketplace CSV completeness validation passed");
+        throw new GradleException(errorMessage.toString());
     }
 
     /**
      * Construct an Environment that only loads recipes directly from the given recipe JAR, not from its dependencies.
      * This ensures that completeness validation is only done against recipes actually provided by the recipe JAR.
      */
-    private Environment jarScanningEnvironment(Path recipeJarPath) {
-        // Get runtime classpath, as that contains classes needed to load recipes
-        List<Path> classpath = getRuntimeClasspath()
-                .getFiles()
-                .stream()
-                .map(File::toPath)
-                .filter(path -> path.toString().endsWith(".jar")) // Exclude build output directories
-                .collect(toList());
+    private static Environment jarScanningEnvironment(Path recipeJarPath, List<Path> classpath, RecipeClassLoader classLoader) {
+        return Environment.builder().scanJar(recipeJarPath, classpath, classLoader).build();
+    }
 
-        // Load environment from JAR
-        return Environment.builder().scanJar(recipeJarPath, classpath, new RecipeClassLoader(recipeJarPath, classpath)).build();
+    /**
+     * Validates completeness, either inside the Gradle daemon or in a forked worker process. The class loader is
+     * closed once validation is done, so that a long-lived daemon or worker process releases the recipe classes and
+     * the open handles on the recipe JAR and its classpath.
+     */
+    public abstract static class ValidateCompleteness implements WorkAction<ValidateCompleteness.Parameters> {
+
+        public interface Parameters extends WorkParameters {
+            RegularFileProperty getCsvFile();
+
+            RegularFileProperty getRecipeJar();
+
+            ListProperty<File> getClasspath();
+        }
+
+        @Override
+        public void execute() {
+            Path recipeJarPath = getParameters().getRecipeJar().get().getAsFile().toPath();
+            List<Path> classpath = getParameters().getClasspath().get().stream().map(File::toPath).collect(toList());
+            RecipeMarketplace marketplace = new RecipeMarketplaceReader().fromCsv(getParameters().getCsvFile().get().getAsFile().toPath());
+            Validated<RecipeMarketplace> validation;
+            try (RecipeClassLoader classLoader = new RecipeClassLoader(recipeJarPath, classpath)) {
+                validation = new RecipeMarketplaceCompletenessValidator().validate(marketplace,
+                        jarScanningEnvironment(recipeJarPath, classpath, classLoader));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            failOnInvalid(validation);
+        }
     }
 }
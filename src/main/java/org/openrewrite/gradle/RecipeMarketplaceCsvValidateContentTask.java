@@ -18,31 +18,63 @@ package org.openrewrite.gradle;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.RegularFileProperty;
-import org.gradle.api.tasks.Internal;
-import org.gradle.api.tasks.TaskAction;
-import org.gradle.work.DisableCachingByDefault;
+import org.gradle.api.tasks.*;
+import org.jspecify.annotations.Nullable;
 import org.openrewrite.Validated;
 import org.openrewrite.marketplace.RecipeMarketplace;
 import org.openrewrite.marketplace.RecipeMarketplaceContentValidator;
 import org.openrewrite.marketplace.RecipeMarketplaceReader;
 
+import java.io.IOException;
+import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-@DisableCachingByDefault(because = "Validation task that checks recipe marketplace CSV content")
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+@CacheableTask
 public abstract class RecipeMarketplaceCsvValidateContentTask extends DefaultTask {
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final int MIN_CHUNK_ROWS = 256;
 
     /**
      * The recipes.csv file to validate.
      * Defaults to src/main/resources/META-INF/rewrite/recipes.csv
      * <br/>
-     * Note: Not marked as @InputFile because we want to allow the file to not exist
+     * Note: Marked as @InputFiles rather than @InputFile because we want to allow the file to not exist
      * and gracefully skip validation in that case.
      */
-    @Internal
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
     public abstract RegularFileProperty getCsvFile();
 
+    /**
+     * Written when validation passes, so that the task is up to date until recipes.csv changes.
+     * Defaults to build/rewrite/validation/recipeCsvValidateContent
+     */
+    @OutputFile
+    public abstract RegularFileProperty getMarkerFile();
+
+    /**
+     * Hashes of the rows of recipes.csv that passed the last successful validation, along with the version and
+     * jar hash of the validator that checked them. Only rows that share a category path with a row that was added
+     * or changed since are validated again, unless the validator or the header row changed, or a row was removed.
+     * Defaults to build/rewrite/validation/recipeCsvValidateContent.rows
+     */
+    @LocalState
+    public abstract RegularFileProperty getValidatedRowsFile();
+
+    public RecipeMarketplaceCsvValidateContentTask() {
+        getMarkerFile().convention(getProject().getLayout().getBuildDirectory().file("rewrite/validation/" + getName()));
+        getValidatedRowsFile().convention(getProject().getLayout().getBuildDirectory().file("rewrite/validation/" + getName() + ".rows"));
+    }
+
     @Override
     public String getDescription() {
         return "Validates the content formatting of recipes.csv (display names, descriptions)";
@@ -54,37 +86,192 @@ public abstract class RecipeMarketplaceCsvValidateContentTask extends DefaultTas
     }
 
     @TaskAction
-    void validate() {
+    void validate() throws IOException {
         Path csvPath = getCsvFile().get().getAsFile().toPath();
 
         if (!Files.exists(csvPath)) {
             getLogger().lifecycle("No recipes.csv found at {}, skipping validation", csvPath.toAbsolutePath());
+            writeMarker("skipped");
             return;
         }
 
         getLogger().info("Validating recipes.csv content at: {}", csvPath.toAbsolutePath());
 
-        // Read the CSV
-        RecipeMarketplaceReader reader = new RecipeMarketplaceReader();
-        RecipeMarketplace marketplace = reader.fromCsv(csvPath);
+        List<String> records = RecipeMarketplaceCsv.readRecords(csvPath);
+        String header = records.isEmpty() ? "" : records.get(0);
+        List<String> rows = records.size() <= 1 ? Collections.emptyList() : records.subList(1, records.size());
+
+        Path validatedRowsPath = getValidatedRowsFile().get().getAsFile().toPath();
+        @Nullable String validatorKey = validatorKey();
+        Set<String> validatedRows = readValidatedRows(validatedRowsPath, validatorKey, header);
+        List<String> rowHashes = rows.stream().map(RecipeMarketplaceCsv::hash).collect(toList());
+        // The validator checks categories as well as rows, so a category path is validated with all of its rows or none.
+        // The sidecar can't tell which category a removed row was in, so removing any row validates them all.
+        boolean removedRows = !new HashSet<>(rowHashes).containsAll(validatedRows);
+        List<List<String>> changedGroups = new ArrayList<>();
+        int changedRows = 0;
+        for (List<Integer> group : categoryGroups(header, rows)) {
+            if (removedRows || group.stream().anyMatch(i -> !validatedRows.contains(rowHashes.get(i)))) {
+                changedGroups.add(group.stream().map(rows::get).collect(toList()));
+                changedRows += group.size();
+            }
+        }
+        getLogger().info("Validating {} of {} rows of recipes.csv, the rest share no category path with a row changed since the last successful validation",
+                changedRows, rows.size());
+
+        List<Path> chunks = writeChunks(header, changedGroups, changedRows);
+        getLogger().info("Validating {} chunk(s) of recipes.csv in parallel", chunks.size());
 
-        // Validate content
-        RecipeMarketplaceContentValidator validator = new RecipeMarketplaceContentValidator();
-        Validated<RecipeMarketplace> validation = validator.validate(marketplace);
+        // Validate content, with each chunk read and validated independently of the others, which is sound as long as
+        // no category spans chunks
+        Queue<Validated.Invalid<RecipeMarketplace>> failureSink = new ConcurrentLinkedQueue<>();
+        chunks.parallelStream().forEach(chunk -> {
+            RecipeMarketplace marketplace = new RecipeMarketplaceReader().fromCsv(chunk);
+            Validated<RecipeMarketplace> validation = new RecipeMarketplaceContentValidator().validate(marketplace);
+            if (validation.isInvalid()) {
+                failureSink.addAll(validation.failures());
+            }
+        });
+
+        if (!failureSink.isEmpty()) {
+            // Chunks finish in any order, so sort the failures. A parent category shared by several category paths
+            // can be reported by more than one chunk, so drop duplicates.
+            Map<String, Validated.Invalid<RecipeMarketplace>> failures = new TreeMap<>();
+            for (Validated.Invalid<RecipeMarketplace> failure : failureSink) {
+                failures.putIfAbsent(failure.getProperty() + "\t" + failure.getMessage(), failure);
+            }
 
-        if (validation.isInvalid()) {
-            List<Validated.Invalid<RecipeMarketplace>> failures = validation.failures();
             StringBuilder errorMessage = new StringBuilder();
             errorMessage.append(failures.size())
                     .append(" content error(s):\n");
 
-            for (Validated.Invalid<RecipeMarketplace> failure : failures) {
+            for (Validated.Invalid<RecipeMarketplace> failure : failures.values()) {
                 errorMessage.append("  - ").append(failure.getProperty()).append(": ").append(failure.getMessage()).append("\n");
             }
 
             throw new GradleException(errorMessage.toString());
         }
 
+        if (validatorKey != null) {
+            List<String> validated = new ArrayList<>(rows.size() + 2);
+            validated.add(validatorKey);
+            validated.add(header);
+            rowHashes.stream().distinct().forEach(validated::add);
+            Files.createDirectories(validatedRowsPath.getParent());
+            Files.write(validatedRowsPath, validated, UTF_8);
+        }
+
         getLogger().lifecycle("Recipe marketplace CSV content validation passed");
+        writeMarker("passed");
+    }
+
+    /**
+     * @return The implementation version of the content validator and the hash of the jar it was loaded from, so that
+     * a snapshot or locally built validator under an unchanged version still forces a full revalidation. Null when the
+     * validator was not loaded from a jar.
+     */
+    private static @Nullable String validatorKey() throws IOException {
+        CodeSource codeSource = RecipeMarketplaceContentValidator.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return null;
+        }
+        Path validatorJar;
+        try {
+            validatorJar = Paths.get(codeSource.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        if (!Files.isRegularFile(validatorJar)) {
+            return null;
+        }
+        return RecipeMarketplaceContentValidator.class.getPackage().getImplementationVersion() + "\t" +
+               TypeTableSections.contentHash(validatorJar);
+    }
+
+    /**
+     * @return The hashes of rows that passed the last successful validation, or none when that validation was done
+     * by a different validator or against a different header row, or the validator is unknown.
+     */
+    private static Set<String> readValidatedRows(Path validatedRowsPath, @Nullable String validatorKey, String header) throws IOException {
+        if (validatorKey == null || !Files.exists(validatedRowsPath)) {
+            return Collections.emptySet();
+        }
+        List<String> lines = Files.readAllLines(validatedRowsPath, UTF_8);
+        if (lines.size() < 2 || !lines.get(0).equals(validatorKey) || !lines.get(1).equals(header)) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(lines.subList(2, lines.size()));
+    }
+
+    /**
+     * Group the rows of recipes.csv by their category path, the values of all of their category columns, so that
+     * every row of a category lands in the same group. Rows without a category are each a group of their own.
+     *
+     * @return The indices of the rows in each group, in the order the groups first appear.
+     */
+    static Collection<List<Integer>> categoryGroups(String header, List<String> rows) {
+        List<Integer> categoryColumns = new ArrayList<>();
+        List<String> columns = RecipeMarketplaceCsv.fields(header);
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).matches("category\\d+")) {
+                categoryColumns.add(i);
+            }
+        }
+
+        Map<List<String>, List<Integer>> byCategoryPath = new LinkedHashMap<>();
+        List<List<Integer>> groups = new ArrayList<>();
+        for (int row = 0; row < rows.size(); row++) {
+            List<String> fields = RecipeMarketplaceCsv.fields(rows.get(row));
+            List<String> categoryPath = new ArrayList<>(categoryColumns.size());
+            for (int column : categoryColumns) {
+                categoryPath.add(column < fields.size() ? fields.get(column) : "");
+            }
+            if (categoryPath.stream().allMatch(String::isEmpty)) {
+                groups.add(singletonList(row));
+            } else {
+                List<Integer> group = byCategoryPath.get(categoryPath);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    byCategoryPath.put(categoryPath, group);
+                    groups.add(group);
+                }
+                group.add(row);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Split groups of rows of recipes.csv into about one chunk per available processor, each written with the
+     * header row to the task's temporary directory. A group is never split across chunks.
+     */
+    private List<Path> writeChunks(String header, List<List<String>> groups, int rows) throws IOException {
+        if (rows == 0) {
+            return Collections.emptyList();
+        }
+        int chunkSize = Math.max(MIN_CHUNK_ROWS, (rows + PARALLELISM - 1) / PARALLELISM);
+
+        Path chunksDir = getTemporaryDir().toPath();
+        List<Path> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(chunkSize + 1);
+        for (Iterator<List<String>> iterator = groups.iterator(); iterator.hasNext(); ) {
+            if (chunk.isEmpty()) {
+                chunk.add(header);
+            }
+            chunk.addAll(iterator.next());
+            if (chunk.size() > chunkSize || !iterator.hasNext()) {
+                Path chunkFile = chunksDir.resolve("recipes-" + chunks.size() + ".csv");
+                Files.write(chunkFile, chunk, UTF_8);
+                chunks.add(chunkFile);
+                chunk = new ArrayList<>(chunkSize + 1);
+            }
+        }
+        return chunks;
+    }
+
+    private void writeMarker(String outcome) throws IOException {
+        Path marker = getMarkerFile().get().getAsFile().toPath();
+        Files.createDirectories(marker.getParent());
+        Files.writeString(marker, outcome);
     }
 }
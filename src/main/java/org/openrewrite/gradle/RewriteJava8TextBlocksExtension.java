@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import org.gradle.api.provider.Property;
+
+public interface RewriteJava8TextBlocksExtension {
+
+    /**
+     * Whether to mark class files as Java 8 while jar tasks copy them into the jar, rather than by rewriting
+     * the output of the compile tasks. Compile outputs are then left exactly as the compiler wrote them.
+     * <p>
+     * Defaults to false.
+     */
+    Property<Boolean> getMarkInJar();
+
+    /**
+     * Whether to fail the build when a class file uses a construct that a Java 8 runtime can't link, such as string
+     * concatenation through {@code invokedynamic}. Otherwise a warning lists them, and they are checked
+     * and listed again on every compilation until fixed.
+     * <p>
+     * Defaults to false.
+     */
+    Property<Boolean> getFailOnUnsupportedConstructs();
+}
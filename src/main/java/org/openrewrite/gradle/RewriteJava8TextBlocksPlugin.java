@@ -16,16 +16,33 @@
 package org.openrewrite.gradle;
 
 import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
-import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.jvm.tasks.Jar;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.io.UncheckedIOException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Marks class files as Java 8 compatible regardless of what they were actually compiled to target.
@@ -38,29 +55,247 @@ public class RewriteJava8TextBlocksPlugin implements Plugin<Project> {
 
     @Override
     public void apply(Project project) {
+        RewriteJava8TextBlocksExtension ext = project.getExtensions().create("rewriteJava8TextBlocks", RewriteJava8TextBlocksExtension.class);
+        ext.getMarkInJar().convention(false);
+        ext.getFailOnUnsupportedConstructs().convention(false);
+
         project.getTasks().withType(JavaCompile.class).configureEach(task -> {
             task.getOptions().getRelease().set((Integer) null);
-            task.doLast(new MarkClassfileWithLanguageLevel8DoLast(project.fileTree(task.getDestinationDirectory(), tree -> tree.include("**/*.class"))));
+            task.getInputs().property("markClassFilesAsJava8InJar", ext.getMarkInJar());
+            task.getInputs().property("failOnUnsupportedJava8Constructs", ext.getFailOnUnsupportedConstructs());
+            task.doLast(new MarkClassfileWithLanguageLevel8DoLast(task.getDestinationDirectory(),
+                    ext.getMarkInJar().map(inJar -> !inJar), ext.getFailOnUnsupportedConstructs()));
+        });
+
+        project.getTasks().withType(Jar.class).configureEach(task ->
+                task.getInputs().property("markClassFilesAsJava8InJar", ext.getMarkInJar()));
+        // Whether to filter class files at all changes the jar's copy spec, so it is decided once the build script
+        // has set the extension, and jars that aren't marked are copied without any filtering
+        project.afterEvaluate(p -> {
+            if (ext.getMarkInJar().get()) {
+                p.getTasks().withType(Jar.class).configureEach(task -> {
+                    // Decode class files with a charset that maps every byte to the character of the same value and back
+                    task.setFilteringCharset(StandardCharsets.ISO_8859_1.name());
+                    task.filesMatching("**/*.class", classFile -> classFile.filter(MarkClassfileWithLanguageLevel8Filter.class));
+                });
+            }
         });
     }
+
+    /**
+     * Rewrites the major version of a class file to 52 (Java 8) as it is copied, leaving every other byte as is.
+     * Must be applied with a filtering charset of ISO-8859-1, so that each character read is one byte of the class file.
+     */
+    public static class MarkClassfileWithLanguageLevel8Filter extends FilterReader {
+        private long position;
+
+        public MarkClassfileWithLanguageLevel8Filter(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            return c < 0 ? c : mark(position++, c);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            for (int i = 0; i < read; i++) {
+                buffer[offset + i] = (char) mark(position++, buffer[offset + i]);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+
+        private static int mark(long position, int c) {
+            // The major version is the big-endian unsigned short at offset 6
+            return position == 6 ? 0x00 : position == 7 ? 0x34 : c;
+        }
+    }
 }
 
+/**
+ * Rewrites the major version of each class file to 52 (Java 8), unless class files are marked when they're copied
+ * into a jar instead.
+ * <p>
+ * The size and modification time of every class file is recorded in the task's temporary directory after it is
+ * marked, so that after an incremental compilation only the class files the compiler wrote are opened again.
+ * Class files that already are at version 52 are left untouched. Class files are patched in parallel, with
+ * positional reads and writes of just the two bytes of the major version.
+ * <p>
+ * The constant pool of each changed class file is also checked for constructs that a Java 8 runtime can't link, such
+ * as string concatenation through {@code invokedynamic}. Class files that use any are listed in a warning, or fail the
+ * build if {@link RewriteJava8TextBlocksExtension#getFailOnUnsupportedConstructs()} is set. They are left out of the
+ * snapshot, so that they are checked and listed again on the next compilation.
+ */
 class MarkClassfileWithLanguageLevel8DoLast implements Action<Task> {
-    private final FileCollection classes;
+    private static final int JAVA_8_MAJOR_VERSION = 52;
+    private static final int MAJOR_VERSION_OFFSET = 6;
+    private static final String SNAPSHOT_FILE = "java8-classfiles.tsv";
+
+    /**
+     * Bootstrap classes of {@code invokedynamic} instructions emitted by javac that don't exist before Java 9.
+     */
+    private static final Map<String, String> UNSUPPORTED_BOOTSTRAPS = Map.of(
+            "java/lang/invoke/StringConcatFactory", "invokedynamic string concatenation (compile with -XDstringConcat=inline)",
+            "java/lang/runtime/ObjectMethods", "record methods bootstrapped by java.lang.runtime.ObjectMethods",
+            "java/lang/runtime/SwitchBootstraps", "pattern matching switch bootstrapped by java.lang.runtime.SwitchBootstraps"
+    );
+
+    private final Provider<Directory> destinationDirectory;
+    private final Provider<Boolean> markClassFiles;
+    private final Provider<Boolean> failOnUnsupported;
 
-    MarkClassfileWithLanguageLevel8DoLast(FileCollection classes) {
-        this.classes = classes;
+    MarkClassfileWithLanguageLevel8DoLast(Provider<Directory> destinationDirectory, Provider<Boolean> markClassFiles,
+                                          Provider<Boolean> failOnUnsupported) {
+        this.destinationDirectory = destinationDirectory;
+        this.markClassFiles = markClassFiles;
+        this.failOnUnsupported = failOnUnsupported;
     }
 
     @Override
     public void execute(Task task) {
-        for (File clazz : classes.getFiles()) {
-            try (RandomAccessFile file = new RandomAccessFile(clazz, "rw")) {
-                file.seek(6);
-                file.writeShort(52);
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
+        try {
+            Path classesDir = destinationDirectory.get().getAsFile().toPath();
+            if (!Files.isDirectory(classesDir)) {
+                return;
+            }
+            List<Path> classes;
+            try (Stream<Path> files = Files.walk(classesDir)) {
+                classes = files.filter(file -> file.getFileName().toString().endsWith(".class")).collect(toList());
+            }
+
+            Path snapshotFile = task.getTemporaryDir().toPath().resolve(SNAPSHOT_FILE);
+            Map<String, String> previous = readSnapshot(snapshotFile);
+            Map<String, String> snapshot = new ConcurrentHashMap<>();
+            Queue<String> unsupported = new ConcurrentLinkedQueue<>();
+            LongAdder marked = new LongAdder();
+            boolean mark = markClassFiles.get();
+            classes.parallelStream().forEach(clazz -> {
+                try {
+                    String state = fileState(clazz);
+                    if (!state.equals(previous.get(clazz.toString()))) {
+                        List<String> constructs = unsupportedConstructs(clazz);
+                        for (String construct : constructs) {
+                            unsupported.add(classesDir.relativize(clazz) + ": " + construct);
+                        }
+                        if (mark && markJava8(clazz)) {
+                            marked.increment();
+                        }
+                        if (!constructs.isEmpty()) {
+                            // Leave out of the snapshot, so that the class file is checked and reported again
+                            return;
+                        }
+                        state = fileState(clazz);
+                    }
+                    snapshot.put(clazz.toString(), state);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            if (!unsupported.isEmpty()) {
+                String message = "Class files marked as Java 8 use constructs a Java 8 runtime doesn't support:\n  - " +
+                                 unsupported.stream().sorted().collect(joining("\n  - "));
+                if (failOnUnsupported.get()) {
+                    throw new GradleException(message);
+                }
+                task.getLogger().warn(message);
+            }
+
+            List<String> lines = new ArrayList<>(snapshot.size());
+            snapshot.forEach((clazz, state) -> lines.add(clazz + "\t" + state));
+            Files.write(snapshotFile, lines, UTF_8);
+            task.getLogger().info("Marked {} of {} class files as Java 8", marked.sum(), classes.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Class files are not forced to disk after being marked, no more than the compiler forces them
+     * to disk after writing them.
+     *
+     * @return Whether the class file had to be rewritten.
+     */
+    private static boolean markJava8(Path clazz) throws IOException {
+        try (FileChannel channel = FileChannel.open(clazz, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer majorVersion = ByteBuffer.allocate(2);
+            while (majorVersion.hasRemaining()) {
+                if (channel.read(majorVersion, MAJOR_VERSION_OFFSET + majorVersion.position()) < 0) {
+                    throw new IOException("Truncated class file " + clazz);
+                }
+            }
+            if (majorVersion.getShort(0) == JAVA_8_MAJOR_VERSION) {
+                return false;
+            }
+            majorVersion.clear();
+            majorVersion.putShort((short) JAVA_8_MAJOR_VERSION).flip();
+            while (majorVersion.hasRemaining()) {
+                channel.write(majorVersion, MAJOR_VERSION_OFFSET + majorVersion.position());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return Descriptions of the constructs in the class file's constant pool that a Java 8 runtime doesn't support.
+     */
+    static List<String> unsupportedConstructs(Path clazz) throws IOException {
+        if (clazz.getFileName().toString().equals("module-info.class")) {
+            // Never loaded as a class, and ignored by a Java 8 runtime
+            return emptyList();
+        }
+        ConstantPool constantPool;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(clazz)))) {
+            constantPool = ConstantPool.read(in);
+        }
+        List<String> unsupported = new ArrayList<>();
+        for (int i = 1; i < constantPool.size(); i++) {
+            switch (constantPool.tag(i)) {
+                case ConstantPool.CONSTANT_DYNAMIC:
+                    unsupported.add("dynamically-computed constant (CONSTANT_Dynamic)");
+                    break;
+                case ConstantPool.CONSTANT_MODULE:
+                case ConstantPool.CONSTANT_PACKAGE:
+                    unsupported.add("module constant (CONSTANT_Module or CONSTANT_Package)");
+                    break;
+                case ConstantPool.CONSTANT_CLASS:
+                    String bootstrap = UNSUPPORTED_BOOTSTRAPS.get(constantPool.className(i));
+                    if (bootstrap != null) {
+                        unsupported.add(bootstrap);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return unsupported;
+    }
+
+    private static String fileState(Path clazz) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(clazz, BasicFileAttributes.class);
+        return attributes.lastModifiedTime() + "\t" + attributes.size();
+    }
+
+    private static Map<String, String> readSnapshot(Path snapshotFile) throws IOException {
+        Map<String, String> snapshot = new HashMap<>();
+        if (Files.exists(snapshotFile)) {
+            for (String line : Files.readAllLines(snapshotFile, UTF_8)) {
+                String[] columns = line.split("\t", 2);
+                if (columns.length == 2) {
+                    snapshot.put(columns[0], columns[1]);
+                }
             }
         }
+        return snapshot;
     }
 }
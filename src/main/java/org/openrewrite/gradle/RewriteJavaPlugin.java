@@ -150,6 +150,8 @@ public class RewriteJavaPlugin implements Plugin<Project> {
             } else {
                 task.setMaxParallelForks(Runtime.getRuntime().availableProcessors());
             }
+            // Lower the forks to fit the cgroup CPU quota and cgroup memory limit of the machine running the tests
+            task.doFirst(new AdaptiveTestForks());
             task.useJUnitPlatform(junit -> junit.excludeTags("debug"));
             task.jvmArgs(
                     "-XX:+UnlockDiagnosticVMOptions",
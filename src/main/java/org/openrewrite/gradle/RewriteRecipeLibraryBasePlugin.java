@@ -50,7 +50,13 @@ public class RewriteRecipeLibraryBasePlugin implements Plugin<Project> {
                 project.provider(() -> extension.getResolvedForSourceSet("main").values())
             );
         });
-        project.getTasks().register("downloadRecipeDependencies", RecipeDependenciesDownloadTask.class);
+        project.getTasks().register("downloadRecipeDependencies", RecipeDependenciesDownloadTask.class, task -> {
+            task.getSourceSetName().convention("main");
+            RecipeDependenciesExtension extension = project.getExtensions().getByType(RecipeDependenciesExtension.class);
+            task.getRecipeDependenciesClasspath().from(
+                project.provider(() -> extension.getResolvedForSourceSet("main").values())
+            );
+        });
 
         // Configure source set specific tasks when Java plugin is applied
         project.getPlugins().withType(JavaPlugin.class, javaPlugin -> {
@@ -59,7 +65,7 @@ public class RewriteRecipeLibraryBasePlugin implements Plugin<Project> {
             javaExt.getSourceSets().all(sourceSet -> {
                 String sourceSetName = sourceSet.getName();
 
-                // Register task for each source set
+                // Register tasks for each source set
                 String taskName = "main".equals(sourceSetName) ? "createTypeTable" :
                         "create" + capitalize(sourceSetName) + "TypeTable";
 
@@ -74,6 +80,16 @@ public class RewriteRecipeLibraryBasePlugin implements Plugin<Project> {
                             project.provider(() -> extension.getResolvedForSourceSet(sourceSetName).values())
                         );
                     });
+                    project.getTasks().register("download" + capitalize(sourceSetName) + "RecipeDependencies", RecipeDependenciesDownloadTask.class, task -> {
+                        task.getSourceSetName().convention(sourceSetName);
+                        task.getTargetDir().convention(
+                            project.getLayout().getProjectDirectory().dir("src/" + sourceSetName + "/resources")
+                        );
+                        RecipeDependenciesExtension extension = project.getExtensions().getByType(RecipeDependenciesExtension.class);
+                        task.getRecipeDependenciesClasspath().from(
+                            project.provider(() -> extension.getResolvedForSourceSet(sourceSetName).values())
+                        );
+                    });
                 }
             });
 
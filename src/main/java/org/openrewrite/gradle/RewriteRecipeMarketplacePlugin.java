@@ -36,11 +36,9 @@ public class RewriteRecipeMarketplacePlugin implements Plugin<Project> {
         });
 
         // Register recipe marketplace CSV tasks
-        project.getTasks().register("recipeCsvGenerate", RecipeMarketplaceCsvGenerateTask.class, task -> {
-            task.finalizedBy(recipeCsvValidateContent);
+        TaskProvider<RecipeMarketplaceCsvScanTask> recipeCsvScan = project.getTasks().register("recipeCsvScan", RecipeMarketplaceCsvScanTask.class, task -> {
             task.getGroupId().convention(project.provider(() -> project.getGroup().toString()));
             task.getArtifactId().convention(project.provider(project::getName));
-            task.getVersion().convention(project.provider(() -> project.getVersion().toString()));
             task.getRuntimeClasspath().from(project.getConfigurations().getByName(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME));
             if (project.getPlugins().hasPlugin(ShadowJavaPlugin.class)) {
                 task.getRecipeJar().convention(project.getTasks().named(ShadowJavaPlugin.SHADOW_JAR_TASK_NAME, ShadowJar.class).flatMap(Jar::getArchiveFile));
@@ -48,6 +46,16 @@ public class RewriteRecipeMarketplacePlugin implements Plugin<Project> {
                 task.getRecipeJar().convention(project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class).flatMap(Jar::getArchiveFile));
             }
 
+            task.getOutputFile().convention(project.getLayout().getBuildDirectory().file("rewrite/recipes.csv"));
+        });
+
+        project.getTasks().register("recipeCsvGenerate", RecipeMarketplaceCsvGenerateTask.class, task -> {
+            task.finalizedBy(recipeCsvValidateContent);
+            task.getGroupId().convention(recipeCsvScan.flatMap(RecipeMarketplaceCsvScanTask::getGroupId));
+            task.getArtifactId().convention(recipeCsvScan.flatMap(RecipeMarketplaceCsvScanTask::getArtifactId));
+            task.getVersion().convention(project.provider(() -> project.getVersion().toString()));
+            task.getGeneratedCsv().convention(recipeCsvScan.flatMap(RecipeMarketplaceCsvScanTask::getOutputFile));
+
             task.getOutputFile().convention(recipesCsvFile);
         });
 
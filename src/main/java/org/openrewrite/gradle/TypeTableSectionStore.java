@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Type table sections shared by every type table task in the build, keyed by the content hash of
+ * the jar they were scanned from. When several source sets, or several projects of a multi-module
+ * recipe repository, put the same jar on their parser classpath, only the first task to need it
+ * scans it; the others copy the stored section.
+ * <p>
+ * Tasks using the store run in parallel. Sections are published to the store by atomic moves, so
+ * two tasks that need the same jar at once may both scan it, but never see a partially written section.
+ * <p>
+ * Every entry a task uses is marked as used. At the end of a build that used the store, entries
+ * that no task used in that build are deleted, so jars of upgraded dependencies don't pile up.
+ */
+public abstract class TypeTableSectionStore implements BuildService<TypeTableSectionStore.Params>, AutoCloseable {
+    private static final Logger logger = Logging.getLogger(TypeTableSectionStore.class);
+
+    /**
+     * Allows for file systems that record modification times with a coarse granularity.
+     */
+    private static final long MODIFICATION_TIME_GRANULARITY_MILLIS = 2_000;
+
+    private final long createdAt = System.currentTimeMillis();
+
+    public interface Params extends BuildServiceParameters {
+        DirectoryProperty getStoreDir();
+    }
+
+    static Provider<TypeTableSectionStore> register(Project project) {
+        return project.getGradle().getSharedServices().registerIfAbsent(
+                "typeTableSectionStore", TypeTableSectionStore.class, spec -> spec.getParameters().getStoreDir()
+                        .set(project.getRootProject().getLayout().getBuildDirectory().dir("rewrite/type-table-store")));
+    }
+
+    /**
+     * Mark an entry of the store as used in this build. Called from the workers writing type tables,
+     * which may run in a process of their own, so the mark is the entry's modification time.
+     */
+    static void markUsed(File entryDir) throws IOException {
+        Files.setLastModifiedTime(entryDir.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    @Override
+    public void close() {
+        File storeDir = getParameters().getStoreDir().get().getAsFile();
+        File[] entries = storeDir.listFiles(File::isDirectory);
+        if (entries == null) {
+            return;
+        }
+        int deleted = 0;
+        try {
+            for (File entry : entries) {
+                if (entry.lastModified() < createdAt - MODIFICATION_TIME_GRANULARITY_MILLIS) {
+                    List<Path> files;
+                    try (Stream<Path> walk = Files.walk(entry.toPath())) {
+                        files = walk.sorted(Comparator.reverseOrder()).collect(toList());
+                    }
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                    }
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} type table store entries no task used in this build", deleted);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.java.internal.parser.TypeTable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * A type table laid out as a sequence of gzip members: first one holding only the header row,
+ * then a section per jar holding that jar's rows. {@link GZIPInputStream} reads concatenated members
+ * as a single stream, so readers of the type table see an ordinary TSV, while the writer can
+ * rewrite the section of one jar without rescanning any of the others.
+ * <p>
+ * A section is a single gzip member, unless the type table is indexed. Then every run of rows
+ * from the same package is its own gzip member, and the offsets of these members are recorded
+ * next to the section, so that an index of the whole type table can point readers at the exact
+ * bytes holding the classes of one jar or one package.
+ */
+final class TypeTableSections {
+    private static final String SECTION_EXTENSION = ".tsv.gz";
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final String METRICS_EXTENSION = ".metrics";
+    private static final String METRICS_HEADER = "groupId\tartifactId\tversion\tclasses\tjarBytes\trows\tsectionBytes\tscanMillis\tscanned";
+    private static final String INDEX_HEADER = "groupId\tartifactId\tversion\tpackageName\toffset\tlength";
+
+    private TypeTableSections() {
+    }
+
+    /**
+     * @param gav "group:artifact:version" coordinates of the jar.
+     * @return The file holding the section for the jar, {@code group/artifact/version.tsv.gz} under {@code sectionsDir}.
+     */
+    static File sectionFile(File sectionsDir, String gav) {
+        String[] parts = gav.split(":", 3);
+        return new File(sectionsDir, parts[0] + "/" + parts[1] + "/" + parts[2] + SECTION_EXTENSION);
+    }
+
+    static boolean hasSection(File sectionsDir, String gav, boolean indexed) {
+        File section = sectionFile(sectionsDir, gav);
+        return section.isFile() && indexFile(section).isFile() == indexed && metricsFile(section).isFile();
+    }
+
+    static File indexFile(File file) {
+        return new File(file.getParentFile(), file.getName() + INDEX_EXTENSION);
+    }
+
+    private static File metricsFile(File section) {
+        return new File(section.getParentFile(), section.getName() + METRICS_EXTENSION);
+    }
+
+    /**
+     * Copy the section of a jar, along with its metrics and its index if it has one, from one sections
+     * directory to another.
+     */
+    static void copySection(File fromSectionsDir, File toSectionsDir, String gav) throws IOException {
+        File from = sectionFile(fromSectionsDir, gav);
+        File to = sectionFile(toSectionsDir, gav);
+        Files.createDirectories(to.getParentFile().toPath());
+        if (indexFile(from).isFile()) {
+            Files.copy(indexFile(from).toPath(), indexFile(to).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(indexFile(to).toPath());
+        }
+        Files.copy(metricsFile(from).toPath(), metricsFile(to).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return The hex-encoded SHA-256 hash of a file's contents.
+     */
+    static String contentHash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(file)), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Delete every section under {@code sectionsDir} that does not belong to one of the given jars.
+     *
+     * @return The number of sections deleted.
+     */
+    static int deleteSectionsExcept(File sectionsDir, Collection<String> gavs) throws IOException {
+        if (!sectionsDir.isDirectory()) {
+            return 0;
+        }
+        Set<Path> keep = gavs.stream()
+                .map(gav -> sectionFile(sectionsDir, gav))
+                .flatMap(section -> Stream.of(section.toPath(), indexFile(section).toPath(), metricsFile(section).toPath()))
+                .collect(toSet());
+        List<Path> stale;
+        try (Stream<Path> files = Files.walk(sectionsDir.toPath())) {
+            stale = files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> !keep.contains(file))
+                    .collect(toList());
+        }
+        for (Path file : stale) {
+            Files.delete(file);
+        }
+        return stale.size();
+    }
+
+    /**
+     * Scan a jar into its own section, which holds the jar's rows without the header row.
+     * <p>
+     * Alongside, record the number of classes in the jar, the jar's size, the number of rows
+     * written, the compressed size of the section and how long the scan took.
+     *
+     * <p>
+     * Every file is written under a name unique to this call and then moved into place, the section
+     * last, so that several tasks can write the same section at once, and a section that exists
+     * always has its index and metrics next to it.
+     *
+     * @param indexed Whether to write each package's rows as its own gzip member and record
+     *                the offset of each member in the section's index.
+     */
+    static void writeSection(String gav, Path jar, Path section, boolean indexed) throws IOException {
+        Files.createDirectories(section.getParent());
+        String unique = "." + UUID.randomUUID();
+        Path scanned = section.resolveSibling(section.getFileName() + unique + ".tmp");
+        Path partial = section.resolveSibling(section.getFileName() + unique + ".part");
+        Path index = indexFile(section.toFile()).toPath();
+        Path partialIndex = index.resolveSibling(index.getFileName() + unique + ".part");
+        Path metrics = metricsFile(section.toFile()).toPath();
+        Path partialMetrics = metrics.resolveSibling(metrics.getFileName() + unique + ".part");
+        long start = System.nanoTime();
+        long rows = 0;
+        try {
+            String[] parts = gav.split(":", 3);
+            try (TypeTable.Writer writer = TypeTable.newWriter(new BufferedOutputStream(Files.newOutputStream(scanned)))) {
+                writer.jar(parts[0], parts[1], parts[2]).write(jar);
+            }
+
+            List<String> members = new ArrayList<>();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new BufferedInputStream(Files.newInputStream(scanned))), UTF_8));
+                 CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+                // The type table writer compresses what it writes, so dropping its header row
+                // means recompressing the jar's rows, once per scan of the jar
+                String header = in.readLine();
+                int classNameColumn = header == null ? -1 : Arrays.asList(header.split("\t", -1)).indexOf("className");
+
+                String memberPackage = null;
+                long memberOffset = 0;
+                Writer member = null;
+                for (String row = in.readLine(); row != null; row = in.readLine()) {
+                    String rowPackage = indexed ? packageOf(row, classNameColumn) : "";
+                    if (member == null || indexed && !rowPackage.equals(memberPackage)) {
+                        if (member != null) {
+                            member.close();
+                            members.add(memberPackage + "\t" + memberOffset + "\t" + (out.getCount() - memberOffset));
+                        }
+                        memberPackage = rowPackage;
+                        memberOffset = out.getCount();
+                        member = new OutputStreamWriter(new GZIPOutputStream(new NonClosingOutputStream(out)), UTF_8);
+                    }
+                    member.write(row);
+                    member.write('\n');
+                    rows++;
+                }
+                if (member != null) {
+                    member.close();
+                    members.add(memberPackage + "\t" + memberOffset + "\t" + (out.getCount() - memberOffset));
+                }
+            }
+            if (indexed) {
+                Files.write(partialIndex, members, UTF_8);
+            }
+
+            long classes;
+            try (JarFile jarFile = new JarFile(jar.toFile())) {
+                classes = jarFile.stream().filter(entry -> entry.getName().endsWith(".class")).count();
+            }
+            Files.writeString(partialMetrics, classes + "\t" + Files.size(jar) + "\t" + rows + "\t" +
+                                              Files.size(partial) + "\t" + (System.nanoTime() - start) / 1_000_000);
+
+            if (indexed) {
+                Files.move(partialIndex, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.deleteIfExists(index);
+            }
+            Files.move(partialMetrics, metrics, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(partial, section, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(scanned);
+            Files.deleteIfExists(partial);
+            Files.deleteIfExists(partialIndex);
+            Files.deleteIfExists(partialMetrics);
+        }
+    }
+
+    /**
+     * Write the type table as a header member followed by the section of each jar, in the given order.
+     * Sections are copied as-is, without being decompressed.
+     *
+     * @param indexFile When not null, where to write the offsets of every jar and package in the type table,
+     *                  in which case the sections must have been written with their own index.
+     */
+    static void assemble(Path tsvFile, @Nullable Path indexFile, File sectionsDir, List<String> gavs) throws IOException {
+        List<String> index = new ArrayList<>();
+        index.add(INDEX_HEADER);
+        try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(tsvFile)))) {
+            // A writer with no jars produces a gzip member holding just the header row
+            //noinspection EmptyTryBlock
+            try (TypeTable.Writer ignored = TypeTable.newWriter(new NonClosingOutputStream(out))) {
+            }
+            for (String gav : gavs) {
+                File section = sectionFile(sectionsDir, gav);
+                String gavColumns = gav.replace(':', '\t');
+                long sectionOffset = out.getCount();
+                Files.copy(section.toPath(), out);
+                if (indexFile == null) {
+                    continue;
+                }
+                index.add(gavColumns + "\t\t" + sectionOffset + "\t" + (out.getCount() - sectionOffset));
+                for (String packageMember : Files.readAllLines(indexFile(section).toPath(), UTF_8)) {
+                    String[] columns = packageMember.split("\t", 3);
+                    index.add(gavColumns + "\t" + columns[0] + "\t" +
+                              (sectionOffset + Long.parseLong(columns[1])) + "\t" + columns[2]);
+                }
+            }
+        }
+        if (indexFile != null) {
+            Files.write(indexFile, index, UTF_8);
+        }
+    }
+
+    /**
+     * Write a report with the metrics of each jar's section, in the given order.
+     *
+     * @param scanned The jars that were scanned in this run, as opposed to reusing an earlier scan.
+     */
+    static void writeMetricsReport(Path report, File sectionsDir, List<String> gavs, Set<String> scanned) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(METRICS_HEADER);
+        for (String gav : gavs) {
+            String metrics = Files.readString(metricsFile(sectionFile(sectionsDir, gav)).toPath()).trim();
+            lines.add(gav.replace(':', '\t') + "\t" + metrics + "\t" + scanned.contains(gav));
+        }
+        Files.createDirectories(report.getParent());
+        Files.write(report, lines, UTF_8);
+    }
+
+    /**
+     * @return The package of the class a row describes, or an empty string when the row can't be attributed
+     * to a package, which keeps all such rows of a jar in as few members as possible.
+     */
+    private static String packageOf(String row, int classNameColumn) {
+        if (classNameColumn < 0) {
+            return "";
+        }
+        String[] columns = row.split("\t", classNameColumn + 2);
+        if (columns.length <= classNameColumn) {
+            return "";
+        }
+        String className = columns[classNameColumn];
+        int lastSeparator = Math.max(className.lastIndexOf('/'), className.lastIndexOf('.'));
+        return lastSeparator < 0 ? "" : className.substring(0, lastSeparator).replace('.', '/');
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
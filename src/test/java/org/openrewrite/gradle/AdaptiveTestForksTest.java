@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.gradle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveTestForksTest {
+    private static final long MB = 1024L * 1024;
+    private static final long GB = 1024L * MB;
+
+    @TempDir
+    Path cgroupRoot;
+
+    @Test
+    void readsCgroupV2Limits() throws IOException {
+        Files.writeString(cgroupRoot.resolve("cpu.max"), "400000 100000\n");
+        Files.writeString(cgroupRoot.resolve("memory.max"), "8589934592\n");
+
+        assertThat(AdaptiveTestForks.cpuLimit(cgroupRoot, emptyList())).isEqualTo(OptionalDouble.of(4));
+        assertThat(AdaptiveTestForks.memoryLimit(cgroupRoot, emptyList())).isEqualTo(OptionalLong.of(8 * GB));
+    }
+
+    @Test
+    void unlimitedCgroupV2() throws IOException {
+        Files.writeString(cgroupRoot.resolve("cpu.max"), "max 100000\n");
+        Files.writeString(cgroupRoot.resolve("memory.max"), "max\n");
+
+        assertThat(AdaptiveTestForks.cpuLimit(cgroupRoot, emptyList())).isEmpty();
+        assertThat(AdaptiveTestForks.memoryLimit(cgroupRoot, emptyList())).isEmpty();
+    }
+
+    @Test
+    void readsCgroupV1Limits() throws IOException {
+        Files.createDirectories(cgroupRoot.resolve("cpu"));
+        Files.createDirectories(cgroupRoot.resolve("memory"));
+        Files.writeString(cgroupRoot.resolve("cpu/cpu.cfs_quota_us"), "150000\n");
+        Files.writeString(cgroupRoot.resolve("cpu/cpu.cfs_period_us"), "100000\n");
+        Files.writeString(cgroupRoot.resolve("memory/memory.limit_in_bytes"), "4294967296\n");
+
+        assertThat(AdaptiveTestForks.cpuLimit(cgroupRoot, emptyList())).isEqualTo(OptionalDouble.of(1.5));
+        assertThat(AdaptiveTestForks.memoryLimit(cgroupRoot, emptyList())).isEqualTo(OptionalLong.of(4 * GB));
+    }
+
+    @Test
+    void unlimitedCgroupV1() throws IOException {
+        Files.createDirectories(cgroupRoot.resolve("cpu"));
+        Files.createDirectories(cgroupRoot.resolve("memory"));
+        Files.writeString(cgroupRoot.resolve("cpu/cpu.cfs_quota_us"), "-1\n");
+        Files.writeString(cgroupRoot.resolve("cpu/cpu.cfs_period_us"), "100000\n");
+        Files.writeString(cgroupRoot.resolve("memory/memory.limit_in_bytes"), "9223372036854771712\n");
+
+        assertThat(AdaptiveTestForks.cpuLimit(cgroupRoot, emptyList())).isEmpty();
+        assertThat(AdaptiveTestForks.memoryLimit(cgroupRoot, emptyList())).isEmpty();
+    }
+
+    @Test
+    void readsOwnCgroupV2() throws IOException {
+        Files.createDirectories(cgroupRoot.resolve("user.slice/build.scope"));
+        Files.writeString(cgroupRoot.resolve("cpu.max"), "max 100000\n");
+        Files.writeString(cgroupRoot.resolve("user.slice/build.scope/cpu.max"), "200000 100000\n");
+        Files.writeString(cgroupRoot.resolve("user.slice/build.scope/memory.max"), "2147483648\n");
+        List<String> cgroups = List.of("0::/user.slice/build.scope");
+
+        assertThat(AdaptiveTestForks.cpuLimit(cgroupRoot, cgroups)).isEqualTo(OptionalDouble.of(2));
+        assertThat(AdaptiveTestForks.memoryLimit(cgroupRoot, cgroups)).isEqualTo(OptionalLong.of(2 * GB));
+    }
+
+    @Test
+    void readsOwnCgroupV1() throws IOException {
+        Files.createDirectories(cgroupRoot.resolve("cpu/build"));
+        Files.createDirectories(cgroupRoot.resolve("memory/build"));
+        Files.writeString(cgroupRoot.resolve("cpu/build/cpu.cfs_quota_us"), "300000\n");
+        Files.writeString(cgroupRoot.resolve("cpu/build/cpu.cfs_period_us"), "100000\n");
+        Files.writeString(cgroupRoot.resolve("memory/build/memory.limit_in_bytes"), "1073741824\n");
+        List<String> cgroups = List.of("4:cpu,cpuacct:/build", "9:memory:/build");
+
+        assertThat(AdaptiveTestForks.cpuLimit(cgroupRoot, cgroups)).isEqualTo(OptionalDouble.of(3));
+        assertThat(AdaptiveTestForks.memoryLimit(cgroupRoot, cgroups)).isEqualTo(OptionalLong.of(GB));
+    }
+
+    @Test
+    void fallsBackToRootWhenOwnCgroupIsNotVisible() throws IOException {
+        Files.writeString(cgroupRoot.resolve("cpu.max"), "100000 100000\n");
+        List<String> cgroups = List.of("0::/docker/0123456789ab");
+
+        assertThat(AdaptiveTestForks.cpuLimit(cgroupRoot, cgroups)).isEqualTo(OptionalDouble.of(1));
+    }
+
+    @Test
+    void noCgroup() {
+        assertThat(AdaptiveTestForks.cpuLimit(cgroupRoot, emptyList())).isEmpty();
+        assertThat(AdaptiveTestForks.memoryLimit(cgroupRoot, emptyList())).isEmpty();
+    }
+
+    @Test
+    void forksAreCappedByCpuQuota() {
+        assertThat(AdaptiveTestForks.maxParallelForks(16, OptionalDouble.of(4), OptionalLong.empty(), 0, 512 * MB))
+          .isEqualTo(4);
+    }
+
+    @Test
+    void forksAreCappedByMemoryLimit() {
+        // 8 GB less a 2 GB daemon leaves room for 8 forks of 512 MB heap and 256 MB overhead
+        assertThat(AdaptiveTestForks.maxParallelForks(16, OptionalDouble.empty(), OptionalLong.of(8 * GB), 2 * GB, 512 * MB))
+          .isEqualTo(8);
+    }
+
+    @Test
+    void neverRaisesConfiguredForks() {
+        assertThat(AdaptiveTestForks.maxParallelForks(2, OptionalDouble.of(8), OptionalLong.of(64 * GB), 2 * GB, 512 * MB))
+          .isEqualTo(2);
+    }
+
+    @Test
+    void alwaysAtLeastOneFork() {
+        assertThat(AdaptiveTestForks.maxParallelForks(1, OptionalDouble.of(0.5), OptionalLong.of(GB), 2 * GB, 512 * MB))
+          .isEqualTo(1);
+    }
+
+    @CsvSource(textBlock = """
+      512m, 536870912
+      2G, 2147483648
+      1024k, 1048576
+      1048576, 1048576
+      """)
+    @ParameterizedTest
+    void parsesMemorySizes(String size, long bytes) {
+        assertThat(AdaptiveTestForks.parseMemorySize(size)).isEqualTo(bytes);
+    }
+
+    @Test
+    void malformedHeapSizeFallsBackToDefault() {
+        assertThat(AdaptiveTestForks.testHeap("lots")).isEqualTo(512 * MB);
+        assertThat(AdaptiveTestForks.testHeap("")).isEqualTo(512 * MB);
+        assertThat(AdaptiveTestForks.testHeap(null)).isEqualTo(512 * MB);
+        assertThat(AdaptiveTestForks.testHeap("1g")).isEqualTo(GB);
+    }
+}
@@ -16,12 +16,28 @@
 package org.openrewrite.gradle;
 
 import org.gradle.api.internal.artifacts.dependencies.DefaultExternalModuleDependency;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
 
 class RecipeDependenciesDownloadTaskTest {
+    @TempDir
+    File projectDir;
 
     @CsvSource(
             textBlock = """
@@ -38,4 +54,124 @@ class RecipeDependenciesDownloadTaskTest {
                 "name-" + oldVersion
         )).isEqualTo(expected);
     }
+
+    @Test
+    void upToDateWhenRecipeDependenciesAreUnchanged() throws Exception {
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'my-project'");
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+          plugins {
+              id 'java'
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+              testParserClasspath 'org.junit.jupiter:junit-jupiter-api:5.10.0'
+          }
+          """);
+
+        BuildResult result = runDownloadTasks();
+        assertThat(requireNonNull(result.task(":downloadRecipeDependencies")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(requireNonNull(result.task(":downloadTestRecipeDependencies")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(new File(projectDir, "src/main/resources/META-INF/rewrite/classpath/guava-31.1-jre.jar")).isFile();
+        assertThat(new File(projectDir, "src/test/resources/META-INF/rewrite/classpath/junit-jupiter-api-5.10.0.jar")).isFile();
+
+        result = runDownloadTasks();
+        assertThat(requireNonNull(result.task(":downloadRecipeDependencies")).getOutcome()).isEqualTo(UP_TO_DATE);
+        assertThat(requireNonNull(result.task(":downloadTestRecipeDependencies")).getOutcome()).isEqualTo(UP_TO_DATE);
+    }
+
+    @Test
+    void hardLinksJarsOutOfTheGradleCache() throws Exception {
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'my-project'");
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+          plugins {
+              id 'java'
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+          }
+          tasks.named('downloadRecipeDependencies') {
+              hardLink = true
+          }
+          tasks.register('writeGuavaPath') {
+              def guava = configurations.detachedConfiguration(dependencies.create('com.google.guava:guava:31.1-jre'))
+              guava.transitive = false
+              def pathFile = file('guava-path.txt')
+              doLast {
+                  pathFile.text = guava.singleFile.absolutePath
+              }
+          }
+          """);
+
+        BuildResult result = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("downloadRecipeDependencies", "writeGuavaPath", "--stacktrace")
+          .withPluginClasspath()
+          .build();
+
+        assertThat(requireNonNull(result.task(":downloadRecipeDependencies")).getOutcome()).isEqualTo(SUCCESS);
+        Path cached = Path.of(Files.readString(new File(projectDir, "guava-path.txt").toPath()));
+        Path downloaded = new File(projectDir, "src/main/resources/META-INF/rewrite/classpath/guava-31.1-jre.jar").toPath();
+        assertThat(Files.isSameFile(cached, downloaded)).isTrue();
+    }
+
+    @Test
+    void copiesJarAgainWhenContentsChangeUnderTheSameName() throws Exception {
+        Files.writeString(new File(projectDir, "settings.gradle").toPath(), "rootProject.name = 'my-project'");
+        Files.writeString(new File(projectDir, "build.gradle").toPath(), """
+          plugins {
+              id 'java'
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              maven { url = file('repo') }
+          }
+          recipeDependencies {
+              parserClasspath 'org.example:lib:1.0-SNAPSHOT'
+          }
+          """);
+        File module = new File(projectDir, "repo/org/example/lib/1.0-SNAPSHOT");
+        Files.createDirectories(module.toPath());
+        Files.writeString(new File(module, "lib-1.0-SNAPSHOT.pom").toPath(), """
+          <project>
+            <modelVersion>4.0.0</modelVersion>
+            <groupId>org.example</groupId>
+            <artifactId>lib</artifactId>
+            <version>1.0-SNAPSHOT</version>
+          </project>
+          """);
+        File jar = new File(module, "lib-1.0-SNAPSHOT.jar");
+        File downloaded = new File(projectDir, "src/main/resources/META-INF/rewrite/classpath/lib-1.0-SNAPSHOT.jar");
+
+        writeJar(jar, "first");
+        assertThat(requireNonNull(runDownloadTasks().task(":downloadRecipeDependencies")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(Files.mismatch(jar.toPath(), downloaded.toPath())).isEqualTo(-1);
+
+        writeJar(jar, "second");
+        assertThat(requireNonNull(runDownloadTasks().task(":downloadRecipeDependencies")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(Files.mismatch(jar.toPath(), downloaded.toPath())).isEqualTo(-1);
+    }
+
+    private static void writeJar(File jar, String contents) throws Exception {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            out.putNextEntry(new JarEntry("org/example/contents.txt"));
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    private BuildResult runDownloadTasks() {
+        return GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("downloadRecipeDependencies", "downloadTestRecipeDependencies", "--stacktrace")
+          .withPluginClasspath()
+          .build();
+    }
 }
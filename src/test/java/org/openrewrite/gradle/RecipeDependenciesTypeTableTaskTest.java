@@ -32,8 +32,12 @@ import java.lang.reflect.Constructor;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.Collection;
+import java.util.List;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
 
 import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
@@ -115,6 +119,152 @@ class RecipeDependenciesTypeTableTaskTest {
         assertJarContainsClass(table.load("spring-core-5.3"), "Order.class");
     }
 
+    @Test
+    void writesTypeTableInForkedWorkerWithHeapBudget() throws Exception {
+        createGradleBuildFiles("""
+          plugins {
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+          }
+          createTypeTable {
+              maxHeapSize = '256m'
+          }
+          """);
+
+        BuildResult result = runTypeTableTaskAndSucceed();
+        assertThat(requireNonNull(result.task(":createTypeTable")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Type table peak heap usage");
+
+        File tsvFile = new File(projectDir, "src/main/resources/" + TypeTable.DEFAULT_RESOURCE_PATH);
+        TypeTable table = createTypeTable(tsvFile, "guava");
+        assertJarContainsClass(table.load("guava"), "Optional.class");
+    }
+
+    @Test
+    void onlyScansAddedJarsOnRerun() throws Exception {
+        createGradleBuildFiles("""
+          plugins {
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+          }
+          """);
+        runTypeTableTaskAndSucceed();
+
+        createGradleBuildFiles("""
+          plugins {
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+              parserClasspath 'org.junit.jupiter:junit-jupiter-api:5.10.0'
+          }
+          """);
+        BuildResult result = runTypeTableTaskAndSucceed();
+        assertThat(requireNonNull(result.task(":createTypeTable")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Scanning 1 of 2 jars");
+
+        List<String> metrics = Files.readAllLines(new File(projectDir, "build/reports/rewrite/type-tables/createTypeTable.tsv").toPath());
+        assertThat(metrics).hasSize(3);
+        assertThat(metrics.get(0)).isEqualTo("groupId\tartifactId\tversion\tclasses\tjarBytes\trows\tsectionBytes\tscanMillis\tscanned");
+        assertThat(metrics.get(1)).startsWith("com.google.guava\tguava\t31.1-jre\t").endsWith("\tfalse");
+        assertThat(metrics.get(2)).startsWith("org.junit.jupiter\tjunit-jupiter-api\t5.10.0\t").endsWith("\ttrue");
+
+        File tsvFile = new File(projectDir, "src/main/resources/" + TypeTable.DEFAULT_RESOURCE_PATH);
+        assertJarContainsClass(createTypeTable(tsvFile, "guava").load("guava"), "Optional.class");
+        assertJarContainsClass(createTypeTable(tsvFile, "junit-jupiter-api").load("junit-jupiter-api"), "Test.class");
+        assertThat(new File(tsvFile.getPath() + ".idx")).doesNotExist();
+    }
+
+    @Test
+    void writesIndexWithOffsetsOfEachJarAndPackage() throws Exception {
+        createGradleBuildFiles("""
+          plugins {
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+              parserClasspath 'org.junit.jupiter:junit-jupiter-api:5.10.0'
+          }
+          createTypeTable {
+              writeIndex = true
+          }
+          """);
+
+        BuildResult result = runTypeTableTaskAndSucceed();
+        assertThat(requireNonNull(result.task(":createTypeTable")).getOutcome()).isEqualTo(SUCCESS);
+
+        File tsvFile = new File(projectDir, "src/main/resources/" + TypeTable.DEFAULT_RESOURCE_PATH);
+        File indexFile = new File(tsvFile.getPath() + ".idx");
+        List<String> index = Files.readAllLines(indexFile.toPath());
+        assertThat(index.get(0)).isEqualTo("groupId\tartifactId\tversion\tpackageName\toffset\tlength");
+
+        String junitSection = index.stream()
+          .filter(row -> row.startsWith("org.junit.jupiter\tjunit-jupiter-api\t5.10.0\t\t"))
+          .findFirst()
+          .orElseThrow();
+        String[] columns = junitSection.split("\t");
+        long headerLength = Long.parseLong(index.get(1).split("\t")[4]);
+        long offset = Long.parseLong(columns[4]);
+        long length = Long.parseLong(columns[5]);
+
+        // The header member followed by just the members of one jar is itself a valid type table
+        byte[] all = Files.readAllBytes(tsvFile.toPath());
+        byte[] partial = new byte[(int) (headerLength + length)];
+        System.arraycopy(all, 0, partial, 0, (int) headerLength);
+        System.arraycopy(all, (int) offset, partial, (int) headerLength, (int) length);
+        File partialTsvFile = new File(projectDir, "partial.tsv.gz");
+        Files.write(partialTsvFile.toPath(), partial);
+        assertJarContainsClass(createTypeTable(partialTsvFile, "junit-jupiter-api").load("junit-jupiter-api"), "Test.class");
+
+        assertThat(index).anyMatch(row -> row.startsWith("com.google.guava\tguava\t31.1-jre\tcom/google/common/base\t"));
+    }
+
+    @Test
+    void readsEverySectionWhenLoadedFromJarResource() throws Exception {
+        createGradleBuildFiles("""
+          plugins {
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+              parserClasspath 'org.junit.jupiter:junit-jupiter-api:5.10.0'
+          }
+          """);
+        runTypeTableTaskAndSucceed();
+
+        // Recipe jars ship the type table as a resource, read through the jar's own inflating stream
+        File tsvFile = new File(projectDir, "src/main/resources/" + TypeTable.DEFAULT_RESOURCE_PATH);
+        File recipeJar = new File(projectDir, "recipes.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(recipeJar.toPath()))) {
+            out.putNextEntry(new JarEntry(TypeTable.DEFAULT_RESOURCE_PATH));
+            Files.copy(tsvFile.toPath(), out);
+            out.closeEntry();
+        }
+        URL resource = new URL("jar:" + recipeJar.toURI() + "!/" + TypeTable.DEFAULT_RESOURCE_PATH);
+
+        // The junit section is the last gzip member, after the header and guava members
+        assertJarContainsClass(createTypeTable(resource, "junit-jupiter-api").load("junit-jupiter-api"), "Test.class");
+    }
+
     @Test
     void usesDefaultIfMultipleResourcesDirectoriesHaveBeenDefined() throws Exception {
         createGradleBuildFiles("""
@@ -248,6 +398,96 @@ class RecipeDependenciesTypeTableTaskTest {
         assertJarContainsClass(table.load("junit-jupiter-api"), "Test.class");
     }
 
+    @Test
+    void sourceSetsShareScannedJars() throws Exception {
+        createGradleBuildFiles("""
+          plugins {
+              id 'java'
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+              testParserClasspath 'com.google.guava:guava:31.1-jre'
+          }
+          """);
+
+        BuildResult result = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("createTypeTable", "createTestTypeTable", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true)
+          .build();
+
+        assertThat(requireNonNull(result.task(":createTypeTable")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(requireNonNull(result.task(":createTestTypeTable")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Reusing stored type table section for com.google.guava:guava:31.1-jre");
+
+        File tsvFile = new File(projectDir, "src/test/resources/" + TypeTable.DEFAULT_RESOURCE_PATH);
+        assertJarContainsClass(createTypeTable(tsvFile, "guava").load("guava"), "Optional.class");
+    }
+
+    @Test
+    void siblingProjectsShareScannedJars() throws Exception {
+        Files.writeString(settingsFile.toPath(), """
+          rootProject.name = 'my-project'
+          include 'a', 'b'
+          """);
+        for (String subproject : new String[]{"a", "b"}) {
+            File subprojectBuildFile = new File(projectDir, subproject + "/build.gradle");
+            //noinspection ResultOfMethodCallIgnored
+            subprojectBuildFile.getParentFile().mkdirs();
+            Files.writeString(subprojectBuildFile.toPath(), """
+              plugins {
+                  id 'org.openrewrite.build.recipe-library-base'
+              }
+              repositories {
+                  mavenCentral()
+              }
+              recipeDependencies {
+                  parserClasspath 'com.google.guava:guava:31.1-jre'
+              }
+              """);
+        }
+
+        BuildResult result = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments(":a:createTypeTable", ":b:createTypeTable", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true)
+          .build();
+
+        assertThat(requireNonNull(result.task(":a:createTypeTable")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(requireNonNull(result.task(":b:createTypeTable")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Reusing stored type table section for com.google.guava:guava:31.1-jre");
+        assertThat(new File(projectDir, "build/rewrite/type-table-store")).isDirectory();
+    }
+
+    @Test
+    void deletesStoreEntriesNoTaskUsed() throws Exception {
+        createGradleBuildFiles("""
+          plugins {
+              id 'org.openrewrite.build.recipe-library-base'
+          }
+          repositories {
+              mavenCentral()
+          }
+          recipeDependencies {
+              parserClasspath 'com.google.guava:guava:31.1-jre'
+          }
+          """);
+        File unused = new File(projectDir, "build/rewrite/type-table-store/0000/com.example/unused");
+        Files.createDirectories(unused.toPath());
+        Files.setLastModifiedTime(unused.getParentFile().getParentFile().toPath(), FileTime.fromMillis(0));
+
+        runTypeTableTaskAndSucceed();
+
+        assertThat(new File(projectDir, "build/rewrite/type-table-store/0000")).doesNotExist();
+        assertThat(new File(projectDir, "build/rewrite/type-table-store").list()).hasSize(1);
+    }
+
     @SuppressWarnings("ResultOfMethodCallIgnored")
     @Test
     void customSourceSetDependencies() throws Exception {
@@ -325,10 +565,14 @@ class RecipeDependenciesTypeTableTaskTest {
     }
 
     private static TypeTable createTypeTable(File tsvFile, String guava) throws Exception {
+        return createTypeTable(tsvFile.toURI().toURL(), guava);
+    }
+
+    private static TypeTable createTypeTable(URL tsv, String guava) throws Exception {
         Constructor<?> constructor = Class.forName("org.openrewrite.java.internal.parser.TypeTable")
           .getDeclaredConstructor(ExecutionContext.class, URL.class, Collection.class);
         constructor.setAccessible(true);
-        return (TypeTable) constructor.newInstance(new InMemoryExecutionContext(), tsvFile.toURI().toURL(), singletonList(guava));
+        return (TypeTable) constructor.newInstance(new InMemoryExecutionContext(), tsv, singletonList(guava));
     }
 
     private static void assertJarContainsClass(@Nullable Path jarPath, String classFileName) throws IOException {
@@ -29,6 +29,7 @@ import java.nio.file.Files;
 import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
 
 @SuppressWarnings("ResultOfMethodCallIgnored")
 class RecipeMarketplaceCsvGenerateTaskTest {
@@ -259,6 +260,26 @@ class RecipeMarketplaceCsvGenerateTaskTest {
           .doesNotContain("org.example.TestRecipe");
     }
 
+    @Test
+    void scanIsUpToDateWhenRecipeJarIsUnchanged() throws Exception {
+        createSimpleRecipeProject();
+
+        GradleRunner runner = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("recipeCsvScan", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true);
+
+        BuildResult first = runner.build();
+        assertThat(requireNonNull(first.task(":recipeCsvScan")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(new File(projectDir, "build/rewrite/recipes.csv"))
+          .content()
+          .contains("org.example.TestRecipe");
+
+        BuildResult second = runner.build();
+        assertThat(requireNonNull(second.task(":recipeCsvScan")).getOutcome()).isEqualTo(UP_TO_DATE);
+    }
+
     private void createSimpleRecipeProject() throws IOException {
         createGradleBuildFiles("""
           plugins {
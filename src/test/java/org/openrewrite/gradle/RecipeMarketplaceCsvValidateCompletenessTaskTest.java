@@ -63,6 +63,66 @@ class RecipeMarketplaceCsvValidateCompletenessTaskTest {
         assertThat(result.getOutput()).contains("Recipe marketplace CSV completeness validation passed");
     }
 
+    @Test
+    void validatesCompletenessInWorkerProcess() throws Exception {
+        createSimpleRecipeProject();
+        Files.writeString(buildFile.toPath(), Files.readString(buildFile.toPath()) + """
+          recipeCsvValidateCompleteness {
+              maxHeapSize = '256m'
+          }
+          """);
+        csvFile.getParentFile().mkdirs();
+        Files.writeString(csvFile.toPath(),
+          """
+          ecosystem,packageName,name,displayName,description
+          maven,org.example:test-recipe-project,org.example.PhantomRecipe,Phantom recipe,This recipe does not exist.
+          """);
+
+        BuildResult result = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("recipeCsvValidateCompleteness", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true)
+          .buildAndFail();
+
+        assertThat(requireNonNull(result.task(":recipeCsvValidateCompleteness")).getOutcome()).isEqualTo(FAILED);
+        assertThat(result.getOutput())
+          .contains("Recipe listed in CSV must exist in the environment")
+          .contains("org.example.PhantomRecipe")
+          .contains("Recipe exists in environment but is not listed in CSV")
+          .contains("org.example.TestRecipe");
+    }
+
+    @Test
+    void validatesCompletenessFromRecipeDescriptors() throws Exception {
+        createSimpleRecipeProject();
+        Files.writeString(buildFile.toPath(), Files.readString(buildFile.toPath()) + """
+          recipeCsvValidateCompleteness {
+              descriptorsOnly = true
+          }
+          """);
+        csvFile.getParentFile().mkdirs();
+        Files.writeString(csvFile.toPath(),
+          """
+          ecosystem,packageName,name,displayName,description
+          maven,org.example:test-recipe-project,org.example.TestRecipe,Test recipe,"A test, recipe."
+          maven,org.example:test-recipe-project,org.example.PhantomRecipe,Phantom recipe,This recipe does not exist.
+          """);
+
+        BuildResult result = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("recipeCsvValidateCompleteness", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true)
+          .buildAndFail();
+
+        assertThat(requireNonNull(result.task(":recipeCsvValidateCompleteness")).getOutcome()).isEqualTo(FAILED);
+        assertThat(result.getOutput())
+          .contains("Recipe listed in CSV must exist in the environment (1)")
+          .contains("org.example.PhantomRecipe")
+          .doesNotContain("Recipe exists in environment but is not listed in CSV");
+    }
+
     @Test
     void failsWhenCsvContainsPhantomRecipe() throws Exception {
         createSimpleRecipeProject();
@@ -25,11 +25,13 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.gradle.testkit.runner.TaskOutcome.FAILED;
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS;
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE;
 
 class RecipeMarketplaceCsvValidateContentTaskTest {
     @TempDir
@@ -62,6 +64,77 @@ class RecipeMarketplaceCsvValidateContentTaskTest {
         assertThat(result.getOutput()).contains("Recipe marketplace CSV content validation passed");
     }
 
+    @Test
+    void upToDateWhenCsvIsUnchanged() throws Exception {
+        createGradleBuildFiles();
+        createValidCsv();
+
+        GradleRunner runner = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("recipeCsvValidateContent", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true);
+
+        assertThat(requireNonNull(runner.build().task(":recipeCsvValidateContent")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(requireNonNull(runner.build().task(":recipeCsvValidateContent")).getOutcome()).isEqualTo(UP_TO_DATE);
+
+        Files.writeString(csvFile.toPath(),
+          """
+            ecosystem,packageName,name,displayName,description
+            maven,org.example:test-project,org.example.TestRecipe,test recipe,A test recipe.
+            """);
+        assertThat(requireNonNull(runner.buildAndFail().task(":recipeCsvValidateContent")).getOutcome()).isEqualTo(FAILED);
+    }
+
+    @Test
+    void onlyValidatesChangedRows() throws Exception {
+        createGradleBuildFiles();
+        createValidCsv();
+
+        GradleRunner runner = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("recipeCsvValidateContent", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true);
+        runner.build();
+
+        Files.writeString(csvFile.toPath(),
+          Files.readString(csvFile.toPath()) +
+          "maven,org.example:test-project,org.example.AnotherRecipe,Another recipe,Another test recipe.\n");
+
+        BuildResult result = runner.build();
+        assertThat(requireNonNull(result.task(":recipeCsvValidateContent")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Validating 1 of 2 rows");
+    }
+
+    @Test
+    void validatesWholeCategoryPathOfChangedRow() throws Exception {
+        createGradleBuildFiles();
+        csvFile.getParentFile().mkdirs();
+        Files.writeString(csvFile.toPath(),
+          """
+            ecosystem,packageName,name,displayName,description,category1,category2
+            maven,org.example:test-project,org.example.First,First recipe,A test recipe.,Spring,Java
+            maven,org.example:test-project,org.example.Second,Second recipe,A test recipe.,Spring,Java
+            maven,org.example:test-project,org.example.Third,Third recipe,A test recipe.,Testing,Java
+            """);
+
+        GradleRunner runner = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("recipeCsvValidateContent", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true);
+        runner.build();
+
+        Files.writeString(csvFile.toPath(),
+          Files.readString(csvFile.toPath()) +
+          "maven,org.example:test-project,org.example.Fourth,Fourth recipe,A test recipe.,Spring,Java\n");
+
+        BuildResult result = runner.build();
+        assertThat(requireNonNull(result.task(":recipeCsvValidateContent")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Validating 3 of 4 rows");
+    }
+
     @Test
     void failsWhenDisplayNameDoesNotStartWithUppercase() throws Exception {
         createGradleBuildFiles();
@@ -157,6 +230,73 @@ class RecipeMarketplaceCsvValidateContentTaskTest {
           .contains("Description must end with a period");
     }
 
+    @Test
+    void validatesLargeCsvInChunks() throws Exception {
+        createGradleBuildFiles();
+        csvFile.getParentFile().mkdirs();
+        StringBuilder csv = new StringBuilder("ecosystem,packageName,name,displayName,description\n");
+        for (int i = 0; i < 2000; i++) {
+            // Quoted descriptions with commas and line breaks must not be split across chunks
+            csv.append("maven,org.example:test-project,org.example.Recipe").append(i)
+              .append(",Test recipe ").append(i).append(",\"A test, recipe\nspanning \"\"lines\"\".\"\n");
+        }
+        csv.append("maven,org.example:test-project,org.example.LastRecipe,Last recipe,No period\n");
+        Files.writeString(csvFile.toPath(), csv);
+
+        BuildResult result = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("recipeCsvValidateContent", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true)
+          .buildAndFail();
+
+        assertThat(requireNonNull(result.task(":recipeCsvValidateContent")).getOutcome()).isEqualTo(FAILED);
+        assertThat(result.getOutput())
+          .contains("1 content error(s):")
+          .contains("Description must end with a period");
+    }
+
+    @Test
+    void validatesLargeCsvWithCategoriesInChunks() throws Exception {
+        createGradleBuildFiles();
+        csvFile.getParentFile().mkdirs();
+        StringBuilder csv = new StringBuilder("ecosystem,packageName,name,displayName,description,category1,category2\n");
+        for (int i = 0; i < 2000; i++) {
+            csv.append("maven,org.example:test-project,org.example.Recipe").append(i)
+              .append(",Test recipe ").append(i).append(",A test recipe.,Category ").append(i % 7)
+              .append(",Example\n");
+        }
+        csv.append("maven,org.example:test-project,org.example.LastRecipe,Last recipe,No period,Category 3,Example\n");
+        Files.writeString(csvFile.toPath(), csv);
+
+        BuildResult result = GradleRunner.create()
+          .withProjectDir(projectDir)
+          .withArguments("recipeCsvValidateContent", "--info", "--stacktrace")
+          .withPluginClasspath()
+          .withDebug(true)
+          .buildAndFail();
+
+        assertThat(requireNonNull(result.task(":recipeCsvValidateContent")).getOutcome()).isEqualTo(FAILED);
+        assertThat(result.getOutput())
+          .contains("1 content error(s):")
+          .contains("Description must end with a period");
+    }
+
+    @Test
+    void groupsRowsByCategoryPath() {
+        assertThat(RecipeMarketplaceCsvValidateContentTask.categoryGroups(
+          "ecosystem,packageName,name,displayName,description,category1,category2",
+          List.of(
+            "maven,org.example:test-project,org.example.A,A,A recipe.,Spring,Java",
+            "maven,org.example:test-project,org.example.B,B,B recipe.,Testing,Java",
+            "maven,org.example:test-project,org.example.C,C,C recipe.,Spring,Java",
+            "maven,org.example:test-project,org.example.D,D,D recipe.,,",
+            "maven,org.example:test-project,org.example.E,E,E recipe.,,",
+            "maven,org.example:test-project,org.example.F,F,\"F, a recipe.\",Testing,Java"
+          )))
+          .containsExactly(List.of(0, 2), List.of(1, 5), List.of(3), List.of(4));
+    }
+
     @Test
     void skipsValidationWhenCsvDoesNotExist() throws Exception {
         createGradleBuildFiles();
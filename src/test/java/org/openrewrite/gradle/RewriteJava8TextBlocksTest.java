@@ -24,6 +24,8 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.jar.JarFile;
 
 import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -72,6 +74,169 @@ class RewriteJava8TextBlocksTest {
         assertThat(requireNonNull(result.task(":compileJava")).getOutcome()).isEqualTo(SUCCESS);
     }
 
+    @Test
+    void onlyMarksChangedClassFiles() throws Exception {
+        writeFile(settingsFile, "rootProject.name = 'my-project'");
+        writeFile(buildFile, """
+                plugins {
+                    id 'org.openrewrite.build.recipe-repositories'
+                    id 'org.openrewrite.build.java-base'
+                    id 'org.openrewrite.build.java8-text-blocks'
+                }
+                """);
+        writeFile(new File(testProjectDir, "src/main/java/org/openrewrite/Test.java"),
+                """
+                        package org.openrewrite;
+                        class Test {
+                            String s = \"""
+                                Hello world!
+                                \""";
+                        }
+                        """);
+
+        GradleRunner runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withArguments("compileJava", "--info")
+                .withPluginClasspath()
+                .withDebug(true);
+        assertThat(runner.build().getOutput()).contains("Marked 1 of 1 class files as Java 8");
+
+        writeFile(new File(testProjectDir, "src/main/java/org/openrewrite/Other.java"),
+                """
+                        package org.openrewrite;
+                        class Other {
+                        }
+                        """);
+        BuildResult result = runner.build();
+
+        assertThat(requireNonNull(result.task(":compileJava")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput()).contains("Marked 1 of 2 class files as Java 8");
+        for (String className : new String[]{"Test", "Other"}) {
+            byte[] classFile = Files.readAllBytes(new File(testProjectDir, "build/classes/java/main/org/openrewrite/" + className + ".class").toPath());
+            assertThat(((classFile[6] & 0xFF) << 8) | (classFile[7] & 0xFF)).isEqualTo(52);
+        }
+    }
+
+    @Test
+    void warnsOnConstructsJava8CannotRun() throws Exception {
+        writeFile(settingsFile, "rootProject.name = 'my-project'");
+        writeFile(buildFile, """
+                plugins {
+                    id 'org.openrewrite.build.recipe-repositories'
+                    id 'org.openrewrite.build.java-base'
+                    id 'org.openrewrite.build.java8-text-blocks'
+                }
+                """);
+        writeStringConcatenation();
+
+        GradleRunner runner = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withArguments("compileJava")
+                .withPluginClasspath()
+                .withDebug(true);
+        BuildResult result = runner.build();
+
+        assertThat(requireNonNull(result.task(":compileJava")).getOutcome()).isEqualTo(SUCCESS);
+        assertThat(result.getOutput())
+                .contains("Class files marked as Java 8 use constructs a Java 8 runtime doesn't support")
+                .contains("org/openrewrite/Test.class: invokedynamic string concatenation");
+        byte[] classFile = Files.readAllBytes(new File(testProjectDir, "build/classes/java/main/org/openrewrite/Test.class").toPath());
+        assertThat(((classFile[6] & 0xFF) << 8) | (classFile[7] & 0xFF)).isEqualTo(52);
+
+        // Reported again after an incremental compilation that doesn't touch the offending class file
+        writeFile(new File(testProjectDir, "src/main/java/org/openrewrite/Other.java"),
+                """
+                        package org.openrewrite;
+                        class Other {
+                        }
+                        """);
+        assertThat(runner.build().getOutput())
+                .contains("org/openrewrite/Test.class: invokedynamic string concatenation");
+    }
+
+    @Test
+    void failsOnConstructsJava8CannotRunWhenRequested() throws Exception {
+        writeFile(settingsFile, "rootProject.name = 'my-project'");
+        writeFile(buildFile, """
+                plugins {
+                    id 'org.openrewrite.build.recipe-repositories'
+                    id 'org.openrewrite.build.java-base'
+                    id 'org.openrewrite.build.java8-text-blocks'
+                }
+
+                rewriteJava8TextBlocks {
+                    failOnUnsupportedConstructs = true
+                }
+                """);
+        writeStringConcatenation();
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withArguments("compileJava")
+                .withPluginClasspath()
+                .withDebug(true)
+                .buildAndFail();
+
+        assertThat(result.getOutput())
+                .contains("Class files marked as Java 8 use constructs a Java 8 runtime doesn't support")
+                .contains("org/openrewrite/Test.class: invokedynamic string concatenation");
+    }
+
+    @Test
+    void marksClassFilesInJarWithoutModifyingCompileOutput() throws Exception {
+        writeFile(settingsFile, "rootProject.name = 'my-project'");
+        writeFile(buildFile, """
+                plugins {
+                    id 'org.openrewrite.build.recipe-repositories'
+                    id 'org.openrewrite.build.java-base'
+                    id 'org.openrewrite.build.java8-text-blocks'
+                }
+
+                rewriteJava8TextBlocks {
+                    markInJar = true
+                }
+                """);
+        writeFile(new File(testProjectDir, "src/main/java/org/openrewrite/Test.java"),
+                """
+                        package org.openrewrite;
+                        class Test {
+                            String s = \"""
+                                Hello world!
+                                \""";
+                        }
+                        """);
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(testProjectDir)
+                .withArguments("jar")
+                .withPluginClasspath()
+                .withDebug(true)
+                .build();
+
+        assertThat(requireNonNull(result.task(":jar")).getOutcome()).isEqualTo(SUCCESS);
+        byte[] compiled = Files.readAllBytes(new File(testProjectDir, "build/classes/java/main/org/openrewrite/Test.class").toPath());
+        assertThat(((compiled[6] & 0xFF) << 8) | (compiled[7] & 0xFF)).isGreaterThan(52);
+
+        File jar = requireNonNull(new File(testProjectDir, "build/libs").listFiles((dir, name) -> name.endsWith(".jar")))[0];
+        try (JarFile jarFile = new JarFile(jar)) {
+            byte[] packaged = jarFile.getInputStream(jarFile.getJarEntry("org/openrewrite/Test.class")).readAllBytes();
+            assertThat(((packaged[6] & 0xFF) << 8) | (packaged[7] & 0xFF)).isEqualTo(52);
+            assertThat(Arrays.copyOfRange(packaged, 8, packaged.length)).isEqualTo(Arrays.copyOfRange(compiled, 8, compiled.length));
+        }
+    }
+
+    private void writeStringConcatenation() throws IOException {
+        writeFile(new File(testProjectDir, "src/main/java/org/openrewrite/Test.java"),
+                """
+                        package org.openrewrite;
+                        class Test {
+                            String greet(String name) {
+                                return "Hello " + name;
+                            }
+                        }
+                        """);
+    }
+
     private void writeFile(File destination, String content) throws IOException {
         //noinspection ResultOfMethodCallIgnored
         destination.getParentFile().mkdirs();